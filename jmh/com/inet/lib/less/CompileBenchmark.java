@@ -0,0 +1,186 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.io.File;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the single phases of a compilation and for the complete compilation. Every operation process all
+ * files of the input. Run it with "gradle jmh" which also profile the allocation rate.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 10, time = 1 )
+@Fork( 1 )
+public class CompileBenchmark {
+
+    /**
+     * The less files of the benchmark.
+     */
+    @State( Scope.Benchmark )
+    public static class Input {
+
+        /**
+         * The input: "bootstrap", "less_org_tests" or "synthetic-" with the count of rules.
+         */
+        @Param( { "bootstrap", "less_org_tests", "synthetic-1000", "synthetic-10000" } )
+        public String           input;
+
+        @Param( { "false", "true" } )
+        public boolean          compress;
+
+        final List<LessSource>  sources = new ArrayList<>();
+
+        /**
+         * Parsed files with resolved lazy imports for the format benchmark.
+         */
+        final List<LessParser>  parsers = new ArrayList<>();
+
+        @Setup
+        public void setup() throws Exception {
+            if( input.equals( "bootstrap" ) ) {
+                add( sample( "bootstrap/bootstrap-3.3.1.less" ) );
+            } else if( input.equals( "less_org_tests" ) ) {
+                addAll( new File( sample( "less_org_tests" ).toURI() ) );
+            } else if( input.startsWith( "synthetic-" ) ) {
+                StylesheetGenerator generator = new StylesheetGenerator();
+                generator.setRules( Integer.parseInt( input.substring( 10 ) ) );
+                sources.add( new LessSource( null, generator.generate() ) );
+            } else {
+                throw new IllegalArgumentException( input );
+            }
+            for( LessSource source : sources ) {
+                LessParser parser = parse( source );
+                parser.parseLazy( newFormatter( compress ) );
+                parsers.add( parser );
+            }
+        }
+
+        private static URL sample( String name ) {
+            return CompileBenchmark.class.getResource( "samples/" + name );
+        }
+
+        private void add( URL url ) throws Exception {
+            String lessData = new String( Files.readAllBytes( new File( url.toURI() ).toPath() ), StandardCharsets.UTF_8 );
+            sources.add( new LessSource( url, lessData ) );
+        }
+
+        /**
+         * Add all less files of the directory that have an expected CSS file.
+         */
+        private void addAll( File dir ) throws Exception {
+            for( File file : dir.listFiles() ) {
+                String name = file.getName();
+                if( file.isDirectory() ) {
+                    addAll( file );
+                } else if( name.endsWith( ".less" ) && new File( dir, name.substring( 0, name.length() - 5 ) + ".css" ).exists() ) {
+                    add( file.toURI().toURL() );
+                }
+            }
+        }
+    }
+
+    /**
+     * Unparsed lazy imports need a fresh parser for every invocation.
+     */
+    @State( Scope.Thread )
+    public static class LazyInput {
+
+        final List<LessParser> parsers = new ArrayList<>();
+
+        @Setup( Level.Invocation )
+        public void setup( Input input ) {
+            parsers.clear();
+            for( LessSource source : input.sources ) {
+                parsers.add( parse( source ) );
+            }
+        }
+    }
+
+    static LessParser parse( LessSource source ) {
+        LessParser parser = new LessParser();
+        parser.parse( source.getBaseURL(), new StringReader( source.getLessData() ) );
+        return parser;
+    }
+
+    static CssFormatter newFormatter( boolean compress ) {
+        return compress ? new CompressCssFormatter() : new CssFormatter();
+    }
+
+    @Benchmark
+    public void parse( Input input, Blackhole blackhole ) {
+        for( LessSource source : input.sources ) {
+            blackhole.consume( parse( source ) );
+        }
+    }
+
+    @Benchmark
+    public void parseLazy( Input input, LazyInput lazyInput, Blackhole blackhole ) {
+        for( LessParser parser : lazyInput.parsers ) {
+            parser.parseLazy( newFormatter( input.compress ) );
+            blackhole.consume( parser );
+        }
+    }
+
+    @Benchmark
+    public void format( Input input, Blackhole blackhole ) {
+        for( int i = 0; i < input.parsers.size(); i++ ) {
+            StringBuilder builder = new StringBuilder();
+            newFormatter( input.compress ).format( input.parsers.get( i ), input.sources.get( i ).getBaseURL(), builder );
+            blackhole.consume( builder );
+        }
+    }
+
+    @Benchmark
+    public void compile( Input input, Blackhole blackhole ) {
+        for( LessSource source : input.sources ) {
+            blackhole.consume( Less.compile( source.getBaseURL(), source.getLessData(), input.compress ) );
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.io.File;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sweep the size of a single feature of a generated stylesheet to find the parts of the compiler that scale
+ * superlinear. Compare the scores of the sizes 1, 4 and 16 of the same feature. Run it with
+ * "gradle jmh -Pjmh=ScalingBenchmark".
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class ScalingBenchmark {
+
+    /**
+     * The scaled feature of the generator.
+     */
+    @Param( { "rules", "nesting", "mixins", "loop", "extend", "variables", "imports" } )
+    public String       feature;
+
+    /**
+     * The factor for the scaled feature.
+     */
+    @Param( { "1", "4", "16" } )
+    public int          size;
+
+    private File        dir;
+
+    private URL         url;
+
+    private String      lessData;
+
+    private LessParser  parser;
+
+    @Setup
+    public void setup() throws Exception {
+        StylesheetGenerator generator = new StylesheetGenerator();
+        switch( feature ) {
+            case "rules":
+                generator.setRules( 1000 * size );
+                break;
+            case "nesting":
+                generator.setNesting( 2 * size );
+                break;
+            case "mixins":
+                generator.setMixins( 50 * size );
+                break;
+            case "loop":
+                generator.setLoopDepth( 50 * size );
+                break;
+            case "extend":
+                generator.setExtendRules( 100 * size );
+                break;
+            case "variables":
+                generator.setVariableChain( 50 * size );
+                break;
+            case "imports":
+                generator.setImports( 10 * size );
+                break;
+            default:
+                throw new IllegalArgumentException( feature );
+        }
+        dir = Files.createTempDirectory( "jlessc" ).toFile();
+        url = generator.writeTo( dir );
+        lessData = new String( Files.readAllBytes( new File( url.toURI() ).toPath() ), StandardCharsets.UTF_8 );
+        parser = newParser();
+        parser.parseLazy( new CssFormatter() );
+    }
+
+    @TearDown
+    public void tearDown() {
+        for( File file : dir.listFiles() ) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    private LessParser newParser() {
+        LessParser parser = new LessParser();
+        parser.parse( url, new StringReader( lessData ) );
+        return parser;
+    }
+
+    @Benchmark
+    public LessParser parse() {
+        return newParser();
+    }
+
+    @Benchmark
+    public StringBuilder format() {
+        StringBuilder builder = new StringBuilder();
+        new CssFormatter().format( parser, url, builder );
+        return builder;
+    }
+
+    @Benchmark
+    public String compile() {
+        return Less.compile( url, lessData, false );
+    }
+}
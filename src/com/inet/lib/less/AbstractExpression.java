@@ -62,24 +62,50 @@ abstract class AbstractExpression extends LessObject implements Expression {
      */
     @Override
     public void appendTo( CssFormatter formatter ) {
-        switch( getDataType( formatter ) ) {
+        int type = getDataType( formatter );
+        switch( type ) {
             case BOOLEAN:
-                formatter.append( Boolean.toString( booleanValue( formatter ) ) );
+                appendValue( formatter, type, 0, booleanValue( formatter ) );
+                return;
+            case PERCENT:
+            case NUMBER:
+            case COLOR:
+            case RGBA:
+                appendValue( formatter, type, doubleValue( formatter ), false );
+                return;
+        }
+        formatter.append( str );
+    }
+
+    /**
+     * Write an already evaluated value of this expression.
+     * 
+     * @param formatter
+     *            the CCS target
+     * @param type
+     *            the data type
+     * @param d
+     *            the double value if the type is a number or color
+     * @param bool
+     *            the boolean value if the type is BOOLEAN
+     */
+    void appendValue( CssFormatter formatter, int type, double d, boolean bool ) {
+        switch( type ) {
+            case BOOLEAN:
+                formatter.append( Boolean.toString( bool ) );
                 return;
             case PERCENT:
-                double d = doubleValue( formatter );
                 formatter.append( d );
                 formatter.append( '%' );
                 return;
             case NUMBER:
-                d = doubleValue( formatter );
                 formatter.appendValue( d, unit( formatter ) );
                 return;
             case COLOR:
-                formatter.appendColor( doubleValue( formatter ), null );
+                formatter.appendColor( d, null );
                 return;
             case RGBA:
-                double color = doubleValue( formatter );
+                double color = d;
                 if( color == 0 && Double.doubleToRawLongBits( color ) == 0 ) {
                     formatter.append( "transparent" );
                 } else {
@@ -0,0 +1,69 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cooperative cancellation of a single compilation. The parser and the formatter check it in its loops and on every
+ * mixin call. A compilation is canceled if the compiling thread is interrupted or if the timeout is exceeded.
+ */
+class Cancellation {
+
+    private final Thread  thread;
+
+    private final boolean hasDeadline;
+
+    private final long    deadline;
+
+    /**
+     * Create a instance for the current thread.
+     * 
+     * @param timeout
+     *            the timeout in milliseconds or 0 for no timeout
+     */
+    Cancellation( long timeout ) {
+        thread = Thread.currentThread();
+        hasDeadline = timeout > 0;
+        deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( timeout );
+    }
+
+    /**
+     * Throw an exception if the compilation should be stopped.
+     * 
+     * @throws LessException
+     *             if canceled
+     */
+    void check() throws LessException {
+        if( thread.isInterrupted() ) {
+            throw new LessException( "Compilation was canceled" );
+        }
+        if( hasDeadline && System.nanoTime() - deadline > 0 ) {
+            throw new LessException( "Compilation timeout exceeded" );
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.net.URL;
+
+/**
+ * A listener for monitoring compilations, for example to emit Java Flight Recorder events. The methods are called from
+ * the compiling threads and must be thread safe if the listener is shared.
+ */
+public interface CompileListener {
+
+    /**
+     * Called before a compilation starts.
+     * 
+     * @param baseURL
+     *            the baseURL of the compiled less data, can be null
+     */
+    void compileStarted( URL baseURL );
+
+    /**
+     * Called after a compilation has finished.
+     * 
+     * @param baseURL
+     *            the baseURL of the compiled less data, can be null
+     * @param duration
+     *            the duration of the compilation in nanoseconds
+     * @param error
+     *            the error of a failed compilation or null if successful
+     */
+    void compileFinished( URL baseURL, long duration, Throwable error );
+
+    /**
+     * Called after a file was imported.
+     * 
+     * @param url
+     *            the URL of the imported file
+     * @param chars
+     *            the count of read characters
+     * @param duration
+     *            the duration of loading and parsing in nanoseconds
+     */
+    void importLoaded( URL url, long chars, long duration );
+
+    /**
+     * Called after a resource of the function data-uri was loaded.
+     * 
+     * @param url
+     *            the URL of the resource
+     * @param bytes
+     *            the size of the resource
+     * @param duration
+     *            the duration of loading in nanoseconds
+     */
+    void resourceLoaded( URL url, long bytes, long duration );
+
+    /**
+     * Called after a mixin call was expanded if the duration exceeds the threshold of the options.
+     * 
+     * @param name
+     *            the name of the mixin
+     * @param fileName
+     *            the file of the mixin call
+     * @param line
+     *            the line of the mixin call
+     * @param duration
+     *            the duration of the expanding in nanoseconds
+     * @see LessOptions#setMixinThreshold(long)
+     */
+    void mixinExpanded( String name, String fileName, int line, long duration );
+}
@@ -0,0 +1,312 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * Timings and counters of compilations. Set an instance with {@link LessOptions#setStats(CompileStats)} and read the
+ * values after the compilation. The values of multiple compilations with the same options are added. All times are in
+ * nanoseconds.
+ */
+public class CompileStats {
+
+    private long                    readTime;
+
+    private long                    parseTime;
+
+    private long                    lazyImportTime;
+
+    private long                    formatTime;
+
+    private long                    extendTime;
+
+    private long                    outputTime;
+
+    private long                    mixinCalls;
+
+    private long                    guardEvaluations;
+
+    private long                    variableLookups;
+
+    private long                    importsLoaded;
+
+    private long                    charsRead;
+
+    private long                    charsProduced;
+
+    private final Map<String, Long> functionCalls = new TreeMap<>();
+
+    /**
+     * The time for reading imported files. It is also part of the parse time.
+     * 
+     * @return the time in nanoseconds
+     */
+    public synchronized long getReadTime() {
+        return readTime;
+    }
+
+    /**
+     * The time for parsing the less data including the imported files.
+     * 
+     * @return the time in nanoseconds
+     */
+    public synchronized long getParseTime() {
+        return parseTime;
+    }
+
+    /**
+     * The time for resolving imports with variables in the filename.
+     * 
+     * @return the time in nanoseconds
+     */
+    public synchronized long getLazyImportTime() {
+        return lazyImportTime;
+    }
+
+    /**
+     * The time for formatting the rules.
+     * 
+     * @return the time in nanoseconds
+     */
+    public synchronized long getFormatTime() {
+        return formatTime;
+    }
+
+    /**
+     * The time for adding the selectors of extends to the rules.
+     * 
+     * @return the time in nanoseconds
+     */
+    public synchronized long getExtendTime() {
+        return extendTime;
+    }
+
+    /**
+     * The time for writing the formatted rules to the output without the extend time.
+     * 
+     * @return the time in nanoseconds
+     */
+    public synchronized long getOutputTime() {
+        return outputTime;
+    }
+
+    /**
+     * The count of mixin calls.
+     * 
+     * @return the count
+     */
+    public synchronized long getMixinCalls() {
+        return mixinCalls;
+    }
+
+    /**
+     * The count of evaluated guards of mixins and CSS rules.
+     * 
+     * @return the count
+     */
+    public synchronized long getGuardEvaluations() {
+        return guardEvaluations;
+    }
+
+    /**
+     * The count of variable lookups.
+     * 
+     * @return the count
+     */
+    public synchronized long getVariableLookups() {
+        return variableLookups;
+    }
+
+    /**
+     * The count of loaded less files from imports.
+     * 
+     * @return the count
+     */
+    public synchronized long getImportsLoaded() {
+        return importsLoaded;
+    }
+
+    /**
+     * The count of characters that was read from imported files.
+     * 
+     * @return the count
+     */
+    public synchronized long getCharsRead() {
+        return charsRead;
+    }
+
+    /**
+     * The count of characters of the CSS output.
+     * 
+     * @return the count
+     */
+    public synchronized long getCharsProduced() {
+        return charsProduced;
+    }
+
+    /**
+     * The count of function evaluations by function name. A function can be evaluated more as once for a single
+     * value.
+     * 
+     * @return a snapshot of the counts sorted by name
+     */
+    public synchronized Map<String, Long> getFunctionCalls() {
+        return Collections.unmodifiableMap( new TreeMap<>( functionCalls ) );
+    }
+
+    /**
+     * Add the values of another statistic.
+     * 
+     * @param other
+     *            the other statistic
+     */
+    synchronized void add( CompileStats other ) {
+        readTime += other.readTime;
+        parseTime += other.parseTime;
+        lazyImportTime += other.lazyImportTime;
+        formatTime += other.formatTime;
+        extendTime += other.extendTime;
+        outputTime += other.outputTime;
+        mixinCalls += other.mixinCalls;
+        guardEvaluations += other.guardEvaluations;
+        variableLookups += other.variableLookups;
+        importsLoaded += other.importsLoaded;
+        charsRead += other.charsRead;
+        charsProduced += other.charsProduced;
+        for( Entry<String, Long> entry : other.functionCalls.entrySet() ) {
+            addFunctionCalls( entry.getKey(), entry.getValue() );
+        }
+    }
+
+    void addParseTime( long time ) {
+        parseTime += time;
+    }
+
+    void addLazyImportTime( long time ) {
+        lazyImportTime += time;
+    }
+
+    void addFormatTime( long time ) {
+        formatTime += time;
+    }
+
+    void addExtendTime( long time ) {
+        extendTime += time;
+    }
+
+    void addOutputTime( long time ) {
+        outputTime += time;
+    }
+
+    void mixinCall() {
+        mixinCalls++;
+    }
+
+    void guardEvaluation() {
+        guardEvaluations++;
+    }
+
+    void variableLookup() {
+        variableLookups++;
+    }
+
+    void addCharsProduced( long count ) {
+        charsProduced += count;
+    }
+
+    void functionCall( String name ) {
+        addFunctionCalls( name, 1 );
+    }
+
+    private void addFunctionCalls( String name, long count ) {
+        Long value = functionCalls.get( name );
+        functionCalls.put( name, value == null ? count : value + count );
+    }
+
+    /**
+     * Count a loaded import and measure the reading of its content. The content is read completely so that the time
+     * is measured once for the whole file.
+     * 
+     * @param reader
+     *            the reader of the imported file
+     * @return a reader of the loaded content
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    Reader importLoaded( Reader reader ) throws IOException {
+        long start = System.nanoTime();
+        StringBuilder content = new StringBuilder();
+        try {
+            char[] buffer = new char[8192];
+            int count;
+            while( (count = reader.read( buffer )) > 0 ) {
+                content.append( buffer, 0, count );
+            }
+        } finally {
+            reader.close();
+        }
+        long time = System.nanoTime() - start;
+        // the chunks of a parallel parse share the statistic of the compilation
+        synchronized( this ) {
+            importsLoaded++;
+            readTime += time;
+            charsRead += content.length();
+        }
+        return new StringReader( content.toString() );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append( "read: " ).append( readTime / 1000000.0 ).append( " ms\n" );
+        builder.append( "parse: " ).append( parseTime / 1000000.0 ).append( " ms\n" );
+        builder.append( "lazy import: " ).append( lazyImportTime / 1000000.0 ).append( " ms\n" );
+        builder.append( "format: " ).append( formatTime / 1000000.0 ).append( " ms\n" );
+        builder.append( "extend: " ).append( extendTime / 1000000.0 ).append( " ms\n" );
+        builder.append( "output: " ).append( outputTime / 1000000.0 ).append( " ms\n" );
+        builder.append( "mixin calls: " ).append( mixinCalls ).append( '\n' );
+        builder.append( "guard evaluations: " ).append( guardEvaluations ).append( '\n' );
+        builder.append( "variable lookups: " ).append( variableLookups ).append( '\n' );
+        builder.append( "imports loaded: " ).append( importsLoaded ).append( '\n' );
+        builder.append( "chars read: " ).append( charsRead ).append( '\n' );
+        builder.append( "chars produced: " ).append( charsProduced ).append( '\n' );
+        for( Entry<String, Long> entry : functionCalls.entrySet() ) {
+            builder.append( "function " ).append( entry.getKey() ).append( ": " ).append( entry.getValue() ).append( '\n' );
+        }
+        return builder.toString();
+    }
+}
@@ -41,6 +41,14 @@ class CompressCssFormatter extends CssFormatter {
         getFormat().setMinimumIntegerDigits( 0 );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    CssFormatter newFormatter() {
+        return new CompressCssFormatter();
+    }
+
     /**
      * Do nothing.
      * {@inheritDoc}
@@ -77,7 +85,7 @@ class CompressCssFormatter extends CssFormatter {
     CssFormatter comment( String msg ) {
         if( msg.startsWith( "/*!" ) ) {
             checkSemicolon();
-            super.append( msg );
+            getOutput().append( msg );
         }
         return this;
     }
@@ -157,7 +165,7 @@ class CompressCssFormatter extends CssFormatter {
      * {@inheritDoc}
      */
     @Override
-    void appendProperty( String name, Expression value ) {
+    void appendProperty( Interpolation name, Expression value ) {
         checkSemicolon();
         super.appendProperty( name, value );
     }
@@ -31,7 +31,9 @@ package com.inet.lib.less;
  */
 class CssAtRule extends LessObject implements Formattable {
 
-    private final String css;
+    private final String        css;
+
+    private final Interpolation template;
 
     /**
      * Create CSS at-rule that have no special handling. Known CSS at rules are @charset, @document, @font-face,
@@ -45,6 +47,7 @@ class CssAtRule extends LessObject implements Formattable {
     public CssAtRule( LessObject reader, String css ) {
         super( reader );
         this.css = css;
+        this.template = Interpolation.parse( css, 1 );
     }
 
     /**
@@ -70,7 +73,7 @@ class CssAtRule extends LessObject implements Formattable {
             formatter = formatter.getHeader();
         }
         formatter.getOutput();
-        SelectorUtils.appendToWithPlaceHolder( formatter, css, 1, this );
+        template.appendTo( formatter, this );
         formatter.newline();
     }
 }
@@ -26,6 +26,8 @@
  */
 package com.inet.lib.less;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.net.URL;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
@@ -33,9 +35,14 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * A formatter for the CSS output. Hold some formating states.
@@ -49,7 +56,21 @@ class CssFormatter implements Cloneable {
         private Rule mixin;
         private HashMap<String, Expression> parameters;
         private HashMap<String, Expression> variables;
-        private final HashMap<String, Expression> returns = new HashMap<>();
+        private HashMap<String, Expression> returns = new HashMap<>();
+
+        /**
+         * Create a copy of a finished scope for the evaluation of its returned variables. The returns are set from the
+         * caller.
+         * 
+         * @return the copy
+         */
+        Scope detach() {
+            Scope scope = new Scope();
+            scope.mixin = mixin;
+            scope.parameters = parameters;
+            scope.variables = variables;
+            return scope;
+        }
 
         /**
          * Get a variable expression from this scope
@@ -59,6 +80,19 @@ class CssFormatter implements Cloneable {
          * @return the expression or null if not found
          */
         Expression getVariable( String name ) {
+            Expression variable = getDeclaredVariable( name );
+            return variable != null ? variable : returns.get( name );
+        }
+
+        /**
+         * Get a variable expression from the parameters or variables of this scope but not from the returns of
+         * nested scopes.
+         * 
+         * @param name
+         *            the name of the variable starting with @
+         * @return the expression or null if not found
+         */
+        Expression getDeclaredVariable( String name ) {
             if( parameters != null ) {
                 Expression variable = parameters.get( name );
                 if( variable != null ) {
@@ -71,16 +105,129 @@ class CssFormatter implements Cloneable {
                     return variable;
                 }
             }
-            if( returns != null ) {
-                Expression variable = returns.get( name );
-                if( variable != null ) {
-                    return variable;
-                }
-            }
             return null;
         }
     }
 
+    /**
+     * A variable that a finished mixin return to the calling scope. It is evaluated on first use with the scopes of the
+     * mixin call. Most returned variables are never read.
+     */
+    static class LazyReturn extends AbstractExpression {
+        private final Expression         expr;
+
+        /**
+         * The finished scopes, the outermost first.
+         */
+        private final Scope[]            scopes;
+
+        /**
+         * The count of scopes below which are still on the stack if the value is read.
+         */
+        private final int                depth;
+
+        private volatile ValueExpression value;
+
+        LazyReturn( Expression expr, Scope[] scopes, int depth ) {
+            super( (LessObject)expr, null );
+            this.expr = expr;
+            this.scopes = scopes;
+            this.depth = depth;
+        }
+
+        /**
+         * Get the evaluated value.
+         * 
+         * @param formatter
+         *            current formatter
+         * @return the value
+         */
+        ValueExpression getValue( CssFormatter formatter ) {
+            ValueExpression value = this.value;
+            if( value == null ) {
+                this.value = value = formatter.evalInScopes( expr, scopes, depth );
+            }
+            return value;
+        }
+
+        /**
+         * Get the variable for the scope below if the scope with the lowest depth is finished.
+         * 
+         * @param scope
+         *            the copy of the finished scope
+         * @return the value or a new lazy variable
+         */
+        Expression moveOut( Scope scope ) {
+            ValueExpression value = this.value;
+            if( value != null ) {
+                return value;
+            }
+            if( depth == 0 ) {
+                return this; // returned from the root scope of another formatter, all scopes are finished
+            }
+            Scope[] moved = new Scope[scopes.length + 1];
+            moved[0] = scope;
+            System.arraycopy( scopes, 0, moved, 1, scopes.length );
+            return new LazyReturn( expr, moved, depth - 1 );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void appendTo( CssFormatter formatter ) {
+            getValue( formatter ).appendTo( formatter );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getDataType( CssFormatter formatter ) {
+            return getValue( formatter ).getDataType( formatter );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public double doubleValue( CssFormatter formatter ) {
+            return getValue( formatter ).doubleValue( formatter );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean booleanValue( CssFormatter formatter ) {
+            return getValue( formatter ).booleanValue( formatter );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String stringValue( CssFormatter formatter ) {
+            return getValue( formatter ).stringValue( formatter );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String unit( CssFormatter formatter ) {
+            return getValue( formatter ).unit( formatter );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return expr.toString();
+        }
+    }
+
     private static class SharedState {
         private final StringBuilderPool                      pool             = new StringBuilderPool();
 
@@ -92,17 +239,96 @@ class CssFormatter implements Cloneable {
 
         private final LessExtendMap                          lessExtends      = new LessExtendMap();
 
-        private int                                          rulesStackModCount;
-
         private final List<CssOutput>                        results          = new ArrayList<>();
 
         private boolean                                      charsetDirective;
 
+        private boolean                                      rootReturnsRead;
+
+        private Cancellation                                 cancellation;
+
+        private CompileStats                                 stats;
+
+        private CompileListener                              listener;
+
+        private long                                         mixinThreshold;
+
+        private MixinProfile                                 profile;
+
+        private final ArrayDeque<Long>                       mixinTimes       = new ArrayDeque<>();
+
+        private OutputAnalysis                               analysis;
+
+        private SourceMapBuilder                             sourceMap;
+
+        private boolean                                      optimize;
+
+        private boolean                                      mergeMedia;
+
+        private boolean                                      reference;
+
+        private ResourceCache                                resourceCache;
+
+        private int                                          dataUriMaxSize;
+
+        private ConcurrentHashMap<String, String>            svgGradients     = new ConcurrentHashMap<>();
+
+        private final IdentityHashMap<String[], IdentityHashMap<String[], String[]>> selectorMerges = new IdentityHashMap<>();
+
+        private Writer                                       writer;
+
         private CssFormatter                                 header;
     }
 
+    /**
+     * Format a chunk of top level rules with its own formatter.
+     */
+    private static class FormatTask extends RecursiveAction {
+        private static final long       serialVersionUID = 1L;
+
+        private final CssFormatter      formatter;
+
+        private final LessParser        parser;
+
+        private final URL               baseURL;
+
+        private final List<Formattable> rules;
+
+        private RuntimeException        exception;
+
+        FormatTask( CssFormatter formatter, LessParser parser, URL baseURL, List<Formattable> rules ) {
+            this.formatter = formatter;
+            this.parser = parser;
+            this.baseURL = baseURL;
+            this.rules = rules;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void compute() {
+            try {
+                formatter.formatRules( parser, baseURL, rules, null );
+            } catch( RuntimeException ex ) {
+                // will be thrown on merge in the order of the rules
+                exception = ex;
+            }
+        }
+    }
+
     private String[] selectors;
 
+    /**
+     * The size of the output after that the results are written to the writer.
+     */
+    private final static int                FLUSH_SIZE = 8192;
+
+    /**
+     * The maximum count of cached selector merges for a single array of parent selectors.
+     */
+    private final static int                MERGE_CACHE_SIZE = 1024;
+
     private final static char[]             DIGITS    = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
 
     private final SharedState               state;
@@ -142,22 +368,593 @@ class CssFormatter implements Cloneable {
         }
     }
 
+    /**
+     * Create a new empty formatter of the same kind with its own state.
+     * 
+     * @return the new formatter
+     */
+    CssFormatter newFormatter() {
+        return new CssFormatter();
+    }
+
     void format( LessParser parser, URL baseURL, StringBuilder target ) {
+        long start = state.stats == null ? 0 : System.nanoTime();
+        formatRules( parser, baseURL, parser.getRules(), null );
+        if( state.stats != null ) {
+            state.stats.addFormatTime( System.nanoTime() - start );
+        }
+        appendResults( target );
+    }
+
+    /**
+     * Format the top level rules in parallel. The rules are split into contiguous chunks and every chunk is formatted
+     * with its own formatter state. The results are merged in source order. Top level rules can return variables into
+     * the root scope. A chunk that has read such variables is formatted again with the returns of all previous chunks.
+     * 
+     * @param parser
+     *            the parser with the rules
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param target
+     *            the target for the CSS output
+     * @param pool
+     *            the pool that execute the chunks
+     */
+    void formatParallel( LessParser parser, URL baseURL, StringBuilder target, ForkJoinPool pool ) {
+        List<Formattable> rules = parser.getRules();
+        int count = Math.min( rules.size(), pool.getParallelism() * 4 );
+        if( count < 2 ) {
+            format( parser, baseURL, target );
+            return;
+        }
+        long start = state.stats == null ? 0 : System.nanoTime();
+        List<FormatTask> tasks = new ArrayList<>( count );
+        for( int i = 0; i < count; i++ ) {
+            List<Formattable> chunk = rules.subList( rules.size() * i / count, rules.size() * (i + 1) / count );
+            tasks.add( new FormatTask( newChunkFormatter(), parser, baseURL, chunk ) );
+        }
+        for( FormatTask task : tasks ) {
+            pool.execute( task );
+        }
+        for( FormatTask task : tasks ) {
+            task.join();
+        }
+
+        HashMap<String, Expression> rootReturns = new HashMap<>();
+        for( FormatTask task : tasks ) {
+            CssFormatter formatter = task.formatter;
+            if( (formatter.state.rootReturnsRead && !rootReturns.isEmpty()) || (formatter.state.charsetDirective && state.charsetDirective) ) {
+                formatter = newChunkFormatter();
+                formatter.state.charsetDirective = state.charsetDirective;
+                formatter.formatRules( parser, baseURL, task.rules, rootReturns );
+            } else if( task.exception != null ) {
+                throw task.exception;
+            }
+            merge( formatter );
+            for( Entry<String, Expression> entry : formatter.state.stack.get( 0 ).returns.entrySet() ) {
+                if( !rootReturns.containsKey( entry.getKey() ) ) {
+                    rootReturns.put( entry.getKey(), entry.getValue() );
+                }
+            }
+        }
+        if( state.stats != null ) {
+            state.stats.addFormatTime( System.nanoTime() - start );
+        }
+        appendResults( target );
+    }
+
+    /**
+     * Create a formatter for a chunk of top level rules with the same cancellation and its own statistics, profile, analysis and source map.
+     * 
+     * @return the new formatter
+     */
+    private CssFormatter newChunkFormatter() {
+        CssFormatter formatter = newFormatter();
+        formatter.state.cancellation = state.cancellation;
+        formatter.state.listener = state.listener;
+        formatter.state.mixinThreshold = state.mixinThreshold;
+        formatter.state.resourceCache = state.resourceCache;
+        formatter.state.dataUriMaxSize = state.dataUriMaxSize;
+        formatter.state.svgGradients = state.svgGradients;
+        if( state.stats != null ) {
+            formatter.state.stats = new CompileStats();
+        }
+        if( state.profile != null ) {
+            formatter.state.profile = new MixinProfile();
+        }
+        if( state.analysis != null ) {
+            formatter.state.analysis = new OutputAnalysis();
+        }
+        if( state.sourceMap != null ) {
+            formatter.state.sourceMap = new SourceMapBuilder( null, null, null );
+        }
+        return formatter;
+    }
+
+    /**
+     * Set the cancellation of the current compilation.
+     * 
+     * @param cancellation
+     *            the cancellation or null
+     */
+    void setCancellation( Cancellation cancellation ) {
+        state.cancellation = cancellation;
+    }
+
+    /**
+     * Set the statistics of the current compilation.
+     * 
+     * @param stats
+     *            the statistics or null if disabled
+     */
+    void setStats( CompileStats stats ) {
+        state.stats = stats;
+    }
+
+    /**
+     * Set the listener of the current compilation.
+     * 
+     * @param listener
+     *            the listener or null
+     * @param mixinThreshold
+     *            the minimum duration in nanoseconds of a mixin expanding that is reported to the listener
+     */
+    void setListener( CompileListener listener, long mixinThreshold ) {
+        state.listener = listener;
+        state.mixinThreshold = mixinThreshold;
+    }
+
+    /**
+     * Get the listener of the current compilation.
+     * 
+     * @return the listener or null
+     */
+    CompileListener getListener() {
+        return state.listener;
+    }
+
+    /**
+     * Set the cache for the resources of the function data-uri.
+     * 
+     * @param resourceCache
+     *            the cache
+     * @param dataUriMaxSize
+     *            the size in bytes from which a resource is not embedded
+     */
+    void setResourceCache( ResourceCache resourceCache, int dataUriMaxSize ) {
+        state.resourceCache = resourceCache;
+        state.dataUriMaxSize = dataUriMaxSize;
+    }
+
+    /**
+     * Get the cache for the resources of the function data-uri. It is created on first use if not set.
+     * 
+     * @return the cache
+     */
+    ResourceCache getResourceCache() {
+        if( state.resourceCache == null ) {
+            state.resourceCache = new ResourceCache();
+            state.dataUriMaxSize = LessOptions.DATA_URI_MAX_SIZE;
+        }
+        return state.resourceCache;
+    }
+
+    /**
+     * Get the size from which a resource of the function data-uri is not embedded.
+     * 
+     * @return the size in bytes
+     */
+    int getDataUriMaxSize() {
+        return state.dataUriMaxSize;
+    }
+
+    /**
+     * Merge the selectors of a nested rule with the selectors of its parent rule. The result is cached for the identity
+     * of both arrays because the same nested rules are formatted again for every call of a mixin. The returned array
+     * must not be changed.
+     * 
+     * @param mainSelector
+     *            the selectors of the parent rule
+     * @param base
+     *            the selectors of the nested rule
+     * @return the merged selectors
+     */
+    String[] mergeSelectors( String[] mainSelector, String[] base ) {
+        IdentityHashMap<String[], IdentityHashMap<String[], String[]>> cache = state.selectorMerges;
+        IdentityHashMap<String[], String[]> merges = cache.get( mainSelector );
+        if( merges == null ) {
+            if( cache.size() >= MERGE_CACHE_SIZE ) {
+                cache.clear();
+            }
+            cache.put( mainSelector, merges = new IdentityHashMap<>() );
+        }
+        String[] sel = merges.get( base );
+        if( sel == null ) {
+            if( merges.size() >= MERGE_CACHE_SIZE ) {
+                merges.clear();
+            }
+            merges.put( base, sel = SelectorUtils.merge( mainSelector, base ) );
+        }
+        return sel;
+    }
+
+    /**
+     * Get the generated svg gradients of the current compilation.
+     * 
+     * @return the results of the function svg-gradient by its evaluated parameters
+     */
+    Map<String, String> getSvgGradientCache() {
+        return state.svgGradients;
+    }
+
+    /**
+     * Get the minimum duration of a mixin expanding that is reported to the listener.
+     * 
+     * @return the threshold in nanoseconds
+     */
+    long getMixinThreshold() {
+        return state.mixinThreshold;
+    }
+
+    /**
+     * Store the time for the properties of a mixin call until its sub rules are appended. The sub rules of the calls
+     * are finished in the same order as their properties.
+     * 
+     * @param duration
+     *            the time in nanoseconds
+     */
+    void addMixinTime( long duration ) {
+        state.mixinTimes.add( duration );
+    }
+
+    /**
+     * Get the time for the properties of the mixin call whose sub rules are appended now.
+     * 
+     * @return the time in nanoseconds
+     */
+    long pollMixinTime() {
+        Long duration = state.mixinTimes.poll();
+        return duration == null ? 0 : duration;
+    }
+
+    /**
+     * Set the mixin profile of the current compilation.
+     * 
+     * @param profile
+     *            the profile or null if disabled
+     */
+    void setProfile( MixinProfile profile ) {
+        state.profile = profile;
+    }
+
+    /**
+     * Get the mixin profile of the current compilation.
+     * 
+     * @return the profile or null if disabled
+     */
+    MixinProfile getProfile() {
+        return state.profile;
+    }
+
+    /**
+     * Set the output analysis of the current compilation.
+     * 
+     * @param analysis
+     *            the analysis or null if disabled
+     */
+    void setOutputAnalysis( OutputAnalysis analysis ) {
+        state.analysis = analysis;
+    }
+
+    /**
+     * Get the output analysis of the current compilation.
+     * 
+     * @return the analysis or null if disabled
+     */
+    OutputAnalysis getOutputAnalysis() {
+        return state.analysis;
+    }
+
+    /**
+     * Set the source map recorder of the current compilation.
+     * 
+     * @param sourceMap
+     *            the recorder or null if disabled
+     */
+    void setSourceMap( SourceMapBuilder sourceMap ) {
+        state.sourceMap = sourceMap;
+    }
+
+    /**
+     * Get the source map recorder of the current compilation.
+     * 
+     * @return the recorder or null if disabled
+     */
+    SourceMapBuilder getSourceMap() {
+        return state.sourceMap;
+    }
+
+    /**
+     * Set if the results should be optimized structurally before they are written.
+     * 
+     * @param optimize
+     *            true, if optimize
+     */
+    void setOptimize( boolean optimize ) {
+        state.optimize = optimize;
+    }
+
+    /**
+     * Set if the rules of identical media queries should be grouped before they are written.
+     * 
+     * @param mergeMedia
+     *            true, if merge
+     */
+    void setMergeMedia( boolean mergeMedia ) {
+        state.mergeMedia = mergeMedia;
+    }
+
+    /**
+     * Set a writer that receive the results while they are appended. The target contains only the not flushed rest
+     * after the formatting.
+     * 
+     * @param writer
+     *            the writer or null if the results should only be appended to the target
+     */
+    void setWriter( Writer writer ) {
+        state.writer = writer;
+    }
+
+    /**
+     * Map the selectors of the current top level block to the rule in the source map.
+     * 
+     * @param rule
+     *            the rule with the less position
+     */
+    void mapSelectors( LessObject rule ) {
+        if( state.sourceMap != null && blockDeep == 1 ) {
+            state.sourceMap.addSelectors( output, rule );
+        }
+    }
+
+    /**
+     * Get the statistics of the current compilation.
+     * 
+     * @return the statistics or null if disabled
+     */
+    CompileStats getStats() {
+        return state.stats;
+    }
+
+    /**
+     * Throw an exception if the current compilation was canceled.
+     */
+    void checkCancellation() {
+        if( state.cancellation != null ) {
+            state.cancellation.check();
+        }
+    }
+
+    /**
+     * Format a list of top level rules into the results of this formatter.
+     * 
+     * @param parser
+     *            the parser with the global variables and mixins
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param rules
+     *            the top level rules
+     * @param rootReturns
+     *            variables that previous top level rules has returned into the root scope or null
+     */
+    private void formatRules( LessParser parser, URL baseURL, List<Formattable> rules, HashMap<String, Expression> rootReturns ) {
         state.baseURL = baseURL;
         addVariables( parser.getVariables() );
-        for( Formattable rule : parser.getRules() ) {
-            if( rule.getClass() == Mixin.class ) {
-                ((Mixin)rule).appendSubRules( null, this );
-            } else {
-                rule.appendTo( this );
-            }
+        if( rootReturns != null ) {
+            state.stack.get( 0 ).returns.putAll( rootReturns );
+        }
+        for( Formattable rule : rules ) {
+            formatRule( rule );
         }
         removeVariables( parser.getVariables() );
+    }
+
+    /**
+     * Format a single top level rule.
+     * 
+     * @param rule
+     *            the rule
+     */
+    private void formatRule( Formattable rule ) {
+        checkCancellation();
+        if( rule.getClass() == Mixin.class ) {
+            ((Mixin)rule).appendSubRules( null, this, false );
+        } else {
+            rule.appendTo( this );
+        }
+    }
+
+    /**
+     * Format the top level rules of a reference import. The results are only written for selectors that extend it.
+     * 
+     * @param rules
+     *            the top level rules of the imported file
+     */
+    void formatReference( List<Formattable> rules ) {
+        boolean reference = state.reference;
+        int headerSize = state.header.output.length();
+        output = null;
+        state.reference = true;
+        try {
+            for( Formattable rule : rules ) {
+                formatRule( rule );
+            }
+        } finally {
+            state.reference = reference;
+            output = null;
+        }
+        state.header.output.setLength( headerSize ); // no CSS imports of the referenced file
+    }
 
+    /**
+     * Add a new result.
+     * 
+     * @param result
+     *            the result
+     */
+    private void addResult( CssOutput result ) {
+        result.setReference( state.reference );
+        state.results.add( result );
+    }
+
+    /**
+     * Remove the results of reference imports. Rules that are extended are kept with the extending selectors only.
+     */
+    private void removeReferences() {
+        List<CssOutput> results = state.results;
+        int count = 0;
+        for( int i = 0; i < results.size(); i++ ) {
+            CssOutput result = results.get( i );
+            if( result.isReference() ) {
+                if( result.getClass() != CssRuleOutput.class ) {
+                    continue;
+                }
+                CssRuleOutput rule = (CssRuleOutput)result;
+                String[] selectors = rule.getSelectors();
+                String[] extended = state.lessExtends.concatenateExtends( selectors );
+                if( extended.length == selectors.length ) {
+                    continue;
+                }
+                rule.setSelectors( Arrays.copyOfRange( extended, selectors.length, extended.length ) );
+                rule.setReference( false );
+            }
+            results.set( count++, result );
+        }
+        results.subList( count, results.size() ).clear();
+    }
+
+    /**
+     * Append the results of a formatter that has formatted the following top level rules.
+     * 
+     * @param formatter
+     *            the formatter of the following rules
+     */
+    private void merge( CssFormatter formatter ) {
+        SharedState other = formatter.state;
+        if( state.sourceMap != null ) {
+            state.sourceMap.addAll( other.sourceMap );
+        }
+        state.header.output.append( other.header.output );
+        for( int i = 1; i < other.results.size(); i++ ) {
+            CssOutput result = other.results.get( i );
+            if( i == 1 && result.getClass() == CssRuleOutput.class ) {
+                // the same merge of equals adjacent rules like in startBlock()
+                CssOutput last = state.results.get( state.results.size() - 1 );
+                if( last.getClass() == CssRuleOutput.class ) {
+                    CssRuleOutput lastRule = (CssRuleOutput)last;
+                    CssRuleOutput rule = (CssRuleOutput)result;
+                    if( lastRule.isReference() == rule.isReference() && Arrays.equals( lastRule.getSelectors(), rule.getSelectors() ) ) {
+                        if( state.sourceMap != null ) {
+                            state.sourceMap.moveTo( lastRule.getOutput(), rule.getOutput(), lastRule.getOutput().length() );
+                        }
+                        lastRule.getOutput().append( rule.getOutput() );
+                        continue;
+                    }
+                }
+            }
+            state.results.add( result );
+        }
+        state.lessExtends.addAll( other.lessExtends );
+        state.charsetDirective |= other.charsetDirective;
+        if( state.stats != null ) {
+            state.stats.add( other.stats );
+        }
+        if( state.profile != null ) {
+            state.profile.add( other.profile );
+        }
+        if( state.analysis != null ) {
+            state.analysis.add( other.analysis );
+        }
+    }
+
+    /**
+     * Write all results to the target.
+     * 
+     * @param target
+     *            the target for the CSS output
+     */
+    private void appendResults( StringBuilder target ) {
+        long start = state.stats == null ? 0 : System.nanoTime();
+        int length = target.length();
+        long flushed = 0;
         output = target;
-        for( CssOutput result : state.results ) {
-            result.appendTo( target, state.lessExtends, this );
+        removeReferences();
+        if( state.optimize ) {
+            CssOptimizer.optimize( state.results, state.sourceMap );
+        }
+        if( state.mergeMedia ) {
+            CssOptimizer.mergeMedia( state.results, state.sourceMap );
+        }
+        OutputAnalysis analysis = state.analysis;
+        Writer writer = state.writer;
+        char[] buffer = writer == null ? null : new char[FLUSH_SIZE];
+        try {
+            for( CssOutput result : state.results ) {
+                if( analysis == null ) {
+                    result.appendTo( target, state.lessExtends, this );
+                } else {
+                    int size = target.length();
+                    result.appendTo( target, state.lessExtends, this );
+                    if( result.getClass() == CssRuleOutput.class && target.length() > size ) {
+                        CssRuleOutput rule = (CssRuleOutput)result;
+                        analysis.block( rule.getSelectors(), rule.getOutput(), target.length() - size );
+                    }
+                }
+                if( writer != null && target.length() >= FLUSH_SIZE ) {
+                    flushed += flush( target, writer, buffer );
+                }
+            }
+            if( writer != null ) {
+                flushed += flush( target, writer, buffer );
+            }
+        } catch( IOException ex ) {
+            throw new LessException( ex );
+        }
+        long produced = flushed + target.length() - length;
+        if( analysis != null ) {
+            analysis.addTotalBytes( produced );
+        }
+        if( state.stats != null ) {
+            state.stats.addOutputTime( System.nanoTime() - start - state.stats.getExtendTime() );
+            state.stats.addCharsProduced( produced );
+        }
+    }
+
+    /**
+     * Write the content of the target to the writer and clear the target.
+     * 
+     * @param target
+     *            the already formatted output
+     * @param writer
+     *            the receiver
+     * @param buffer
+     *            a buffer for the copy of the characters
+     * @return the count of written characters
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private int flush( StringBuilder target, Writer writer, char[] buffer ) throws IOException {
+        int length = target.length();
+        for( int i = 0; i < length; i += buffer.length ) {
+            int end = Math.min( length, i + buffer.length );
+            target.getChars( i, end, buffer, 0 );
+            writer.write( buffer, 0, end - i );
+        }
+        if( state.sourceMap != null ) {
+            state.sourceMap.flushed( target );
         }
+        target.setLength( 0 );
+        return length;
     }
 
     /**
@@ -224,6 +1021,28 @@ class CssFormatter implements Cloneable {
         output.setLength( size );
     }
 
+    /**
+     * Get the count of the formatted results.
+     * @return the count
+     */
+    int getResultCount() {
+        return state.results.size();
+    }
+
+    /**
+     * Get the content size of the formatted results.
+     * @param fromIndex the index of the first result
+     * @return the size
+     */
+    long getResultSize( int fromIndex ) {
+        List<CssOutput> results = state.results;
+        long size = 0;
+        for( int i = fromIndex; i < results.size(); i++ ) {
+            size += results.get( i ).length();
+        }
+        return size;
+    }
+
     void add( LessExtend lessExtend ) {
         state.lessExtends.add( lessExtend, this.selectors );
     }
@@ -240,12 +1059,25 @@ class CssFormatter implements Cloneable {
      * @return the expression or null if not found
      */
     Expression getVariable( String name ) {
-        for( int i = state.stackIdx - 1; i >= 0; i-- ) {
+        if( state.stats != null ) {
+            state.stats.variableLookup();
+        }
+        for( int i = state.stackIdx - 1; i > 0; i-- ) {
             Expression variable = state.stack.get( i ).getVariable( name );
             if( variable != null ) {
                 return variable;
             }
         }
+        if( state.stackIdx > 0 ) {
+            Scope root = state.stack.get( 0 );
+            Expression variable = root.getDeclaredVariable( name );
+            if( variable == null ) {
+                // the returns of the root scope depends on all previous top level rules
+                state.rootReturnsRead = true;
+                variable = root.returns.get( name );
+            }
+            return variable;
+        }
         return null;
     }
 
@@ -271,33 +1103,142 @@ class CssFormatter implements Cloneable {
     }
 
     /**
-     * Remove the scope of a mixin.
+     * Remove the scope of a mixin. The variables and returns of the mixin are returned to the calling scope. They are
+     * only evaluated on first use.
      */
     void removeMixin() {
         int idx = state.stackIdx - 1;
         Scope current = state.stack.get( idx );
-        if( idx > 0 ) {
-            Scope previous = state.stack.get( idx - 1 );
-            HashMap<String, Expression> currentReturn = previous.returns;
-            HashMap<String, Expression> vars = current.variables;
-            if( vars != null ) {
-                for( Entry<String, Expression> entry : vars.entrySet() ) {
-                    if( previous.getVariable( entry.getKey() ) == null ) {
-                        currentReturn.put( entry.getKey(), ValueExpression.eval( this, entry.getValue() ) );
-                    }
+        HashMap<String, Expression> vars = current.variables;
+        HashMap<String, Expression> returns = current.returns;
+        if( (idx > 0 && vars != null && !vars.isEmpty()) || !returns.isEmpty() ) {
+            Scope finished = current.detach();
+            HashMap<String, Expression> moved = new HashMap<>( returns.size() );
+            for( Entry<String, Expression> entry : returns.entrySet() ) {
+                Expression value = entry.getValue();
+                if( value.getClass() == LazyReturn.class ) {
+                    value = ((LazyReturn)value).moveOut( finished );
                 }
+                moved.put( entry.getKey(), value );
             }
-            vars = current.returns;
-            if( vars != null ) {
-                for( Entry<String, Expression> entry : vars.entrySet() ) {
+            finished.returns = moved;
+            if( idx > 0 ) {
+                Scope previous = state.stack.get( idx - 1 );
+                HashMap<String, Expression> currentReturn = previous.returns;
+                if( vars != null ) {
+                    Scope[] scopes = { finished };
+                    for( Entry<String, Expression> entry : vars.entrySet() ) {
+                        if( previous.getVariable( entry.getKey() ) == null ) {
+                            Expression value = entry.getValue();
+                            if( isSelfContained( value, scopes, 0 ) ) {
+                                value = new LazyReturn( value, scopes, idx );
+                            } else {
+                                // the value depends on scopes that can change until the variable is read
+                                value = ValueExpression.eval( this, value );
+                            }
+                            currentReturn.put( entry.getKey(), value );
+                        }
+                    }
+                }
+                for( Entry<String, Expression> entry : moved.entrySet() ) {
                     if( previous.getVariable( entry.getKey() ) == null ) {
-                        currentReturn.put( entry.getKey(), ValueExpression.eval( this, entry.getValue() ) );
+                        currentReturn.put( entry.getKey(), entry.getValue() );
                     }
                 }
+            } else {
+                // the returns of the root scope can be read from other formatters after formatting
+                returns.putAll( moved );
             }
         }
         state.stackIdx--;
-        state.rulesStackModCount++;
+    }
+
+    /**
+     * Check if all variables of an expression are resolved from the finished scopes. Only such an expression can be
+     * evaluated lazily because the caller scopes can change until the returned variable is read.
+     * 
+     * @param expr
+     *            the expression of the variable
+     * @param scopes
+     *            the finished scopes
+     * @param depth
+     *            the recursion depth over variables that reference other variables
+     * @return true, if the expression does not depend on other scopes
+     */
+    private boolean isSelfContained( Expression expr, Scope[] scopes, int depth ) {
+        if( depth > 16 ) {
+            // possibly a recursive variable definition
+            return false;
+        }
+        Class<?> type = expr.getClass();
+        if( type == LazyReturn.class ) {
+            return true;
+        }
+        if( type == ValueExpression.class ) {
+            return expr.getDataType( this ) != Expression.STRING || expr.toString().indexOf( '@' ) < 0;
+        }
+        if( type == VariableExpression.class ) {
+            String name = expr.toString();
+            for( int i = scopes.length - 1; i >= 0; i-- ) {
+                Expression value = scopes[i].getVariable( name );
+                if( value != null ) {
+                    return isSelfContained( value, scopes, depth + 1 );
+                }
+            }
+            return false;
+        }
+        List<Expression> operands;
+        if( type == Operation.class ) {
+            operands = ((Operation)expr).getOperands();
+        } else if( type == FunctionExpression.class ) {
+            operands = ((FunctionExpression)expr).getParameters();
+        } else {
+            return false;
+        }
+        for( int i = 0; i < operands.size(); i++ ) {
+            if( !isSelfContained( operands.get( i ), scopes, depth + 1 ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evaluate a returned variable with the scopes of the finished mixin on top of the scopes below that are still on
+     * the stack. The stack is restored after evaluation.
+     * 
+     * @param expr
+     *            the expression of the variable
+     * @param scopes
+     *            the finished scopes
+     * @param depth
+     *            the count of scopes that are used from the current stack
+     * @return the value
+     */
+    private ValueExpression evalInScopes( Expression expr, Scope[] scopes, int depth ) {
+        ArrayList<Scope> stack = state.stack;
+        int stackIdx = state.stackIdx;
+        Scope[] saved = new Scope[scopes.length];
+        for( int i = 0; i < scopes.length; i++ ) {
+            if( depth + i < stack.size() ) {
+                saved[i] = stack.set( depth + i, scopes[i] );
+            } else {
+                stack.add( scopes[i] );
+            }
+        }
+        state.stackIdx = depth + scopes.length;
+        try {
+            return ValueExpression.eval( this, expr );
+        } finally {
+            for( int i = scopes.length - 1; i >= 0; i-- ) {
+                if( saved[i] != null ) {
+                    stack.set( depth + i, saved[i] );
+                } else {
+                    stack.remove( depth + i );
+                }
+            }
+            state.stackIdx = stackIdx;
+        }
     }
 
     /**
@@ -359,14 +1300,10 @@ class CssFormatter implements Cloneable {
         return null;
     }
 
-    int stackID() {
-        return state.rulesStackModCount;
-    }
-
     StringBuilder getOutput() {
         if( output == null ) {
             CssFormatter block = copy( null );
-            state.results.add( new CssPlainOutput( block.output ) );
+            addResult( new CssPlainOutput( block.output ) );
             output = block.output;
         }
         return output;
@@ -447,9 +1384,10 @@ class CssFormatter implements Cloneable {
                 CssOutput cssOutput = results.get( results.size() - 1 );
                 if( cssOutput.getClass() == CssRuleOutput.class ) {
                     CssRuleOutput ruleOutput = (CssRuleOutput)cssOutput;
-                    if( Arrays.equals( selectors, ruleOutput.getSelectors() ) ) {
+                    if( ruleOutput.isReference() == state.reference && Arrays.equals( selectors, ruleOutput.getSelectors() ) ) {
                         CssFormatter block = copy( ruleOutput.getOutput() );
                         block.incInsets();
+                        block.selectors = selectors;
                         block.blockDeep++;
                         return block;
                     }
@@ -458,7 +1396,7 @@ class CssFormatter implements Cloneable {
             CssFormatter block = copy( null );
             block.incInsets();
             block.selectors = selectors;
-            results.add( new CssRuleOutput( selectors, block.output ) );
+            addResult( new CssRuleOutput( selectors, block.output ) );
             block.blockDeep = 1;
             return block;
         } else {
@@ -466,7 +1404,7 @@ class CssFormatter implements Cloneable {
                 CssFormatter block = copy( null );
                 block.incInsets();
                 String[] sel = new String[]{ this.selectors[0] + " and " + selectors[0].substring( 6 ).trim() };
-                state.results.add( new CssRuleOutput( sel, block.output ) );
+                addResult( new CssRuleOutput( sel, block.output ) );
                 block.blockDeep = 1;
                 return block;
             } else {
@@ -511,9 +1449,12 @@ class CssFormatter implements Cloneable {
         newline();
     }
 
-    void appendProperty( String name, Expression value ) {
+    void appendProperty( Interpolation name, Expression value ) {
         insets();
-        SelectorUtils.appendToWithPlaceHolder( this, name, 0, (LessObject)value );
+        if( state.sourceMap != null ) {
+            state.sourceMap.add( output, (LessObject)value );
+        }
+        name.appendTo( this, (LessObject)value );
         output.append( ':' );
         space();
         value.appendTo( this );
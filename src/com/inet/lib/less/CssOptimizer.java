@@ -0,0 +1,702 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * A structural optimization of the formatted results before they are written. It drops properties that are overridden
+ * later in the same block, merges rules with the same selectors and merges rules with identical declarations into one
+ * selector list. A separate pass groups the rules of identical media queries.
+ * <p>
+ * A rule is only moved to an earlier rule if no rule between sets a property of the same family, for example
+ * "margin-top" and "margin". At-rules, comments and blocks with nested content are barriers that are never crossed.
+ */
+class CssOptimizer {
+
+    /**
+     * The additional families of shorthand properties that reset properties of other families.
+     */
+    private static final HashMap<String, String[]> SHORTHANDS = new HashMap<>();
+
+    static {
+        SHORTHANDS.put( "columns", new String[] { "column" } );
+        SHORTHANDS.put( "font", new String[] { "line" } );
+        SHORTHANDS.put( "place-content", new String[] { "align", "justify" } );
+        SHORTHANDS.put( "place-items", new String[] { "align", "justify" } );
+        SHORTHANDS.put( "place-self", new String[] { "align", "justify" } );
+        SHORTHANDS.put( "gap", new String[] { "row", "column", "grid" } );
+        SHORTHANDS.put( "grid-gap", new String[] { "gap", "row", "column" } );
+        SHORTHANDS.put( "grid", new String[] { "gap", "row", "column" } );
+    }
+
+    /**
+     * A top level CSS rule with its parsed declarations.
+     */
+    private static class Block {
+
+        private final CssRuleOutput   rule;
+
+        private final int             index;
+
+        private String                selectorKey;
+
+        private String                body;
+
+        private final HashSet<String> families = new HashSet<>();
+
+        private boolean               removed;
+
+        Block( CssRuleOutput rule, int index ) {
+            this.rule = rule;
+            this.index = index;
+        }
+    }
+
+    /**
+     * A single declaration in the content of a block.
+     */
+    private static class Declaration {
+
+        private int     start;
+
+        private int     end;
+
+        private String  name;
+
+        private String  value;
+
+        private boolean important;
+    }
+
+    /**
+     * Optimize the results.
+     * 
+     * @param results
+     *            the formatted results, the list is modified
+     * @param sourceMap
+     *            the source map recorder or null
+     */
+    static void optimize( List<CssOutput> results, SourceMapBuilder sourceMap ) {
+        ArrayList<Block> blocks = new ArrayList<>( results.size() );
+        HashMap<String, Block> bySelectors = new HashMap<>();
+        HashMap<String, Block> byBody = new HashMap<>();
+        boolean changed = false;
+        for( int i = 0; i < results.size(); i++ ) {
+            Block block = createBlock( results.get( i ), i, sourceMap );
+            blocks.add( block );
+            if( block == null ) {
+                if( !isEmpty( results.get( i ) ) ) {
+                    // barrier
+                    bySelectors.clear();
+                    byBody.clear();
+                }
+                continue;
+            }
+
+            Block target = bySelectors.get( block.selectorKey );
+            if( target != null && isMovable( blocks, target, block ) ) {
+                byBody.remove( target.body );
+                appendContent( target, block, sourceMap );
+                byBody.put( target.body, target );
+                block.removed = changed = true;
+                continue;
+            }
+            target = byBody.get( block.body );
+            if( target != null && !hasVendorPseudo( target.rule.getSelectors() ) && !hasVendorPseudo( block.rule.getSelectors() ) && isMovable( blocks, target, block ) ) {
+                bySelectors.remove( target.selectorKey );
+                LinkedHashSet<String> selectors = new LinkedHashSet<>( Arrays.asList( target.rule.getSelectors() ) );
+                selectors.addAll( Arrays.asList( block.rule.getSelectors() ) );
+                target.rule.setSelectors( selectors.toArray( new String[selectors.size()] ) );
+                target.selectorKey = selectorKey( target.rule.getSelectors() );
+                bySelectors.put( target.selectorKey, target );
+                block.removed = changed = true;
+                continue;
+            }
+            bySelectors.put( block.selectorKey, block );
+            byBody.put( block.body, block );
+        }
+
+        if( changed ) {
+            ArrayList<CssOutput> optimized = new ArrayList<>( results.size() );
+            for( int i = 0; i < results.size(); i++ ) {
+                Block block = blocks.get( i );
+                if( block == null || !block.removed ) {
+                    optimized.add( results.get( i ) );
+                }
+            }
+            results.clear();
+            results.addAll( optimized );
+        }
+    }
+
+    /**
+     * Merge media query blocks with the same condition into the first block. A later block is only moved if no result
+     * between sets a property of the same family.
+     * 
+     * @param results
+     *            the formatted results, the list is modified
+     * @param sourceMap
+     *            the source map recorder or null
+     */
+    static void mergeMedia( List<CssOutput> results, SourceMapBuilder sourceMap ) {
+        ArrayList<HashSet<String>> families = new ArrayList<>( results.size() );
+        boolean[] removed = new boolean[results.size()];
+        HashMap<String, Integer> byCondition = new HashMap<>();
+        boolean changed = false;
+        for( int i = 0; i < results.size(); i++ ) {
+            CssOutput result = results.get( i );
+            HashSet<String> resultFamilies = families( result );
+            families.add( resultFamilies );
+            if( resultFamilies == null ) {
+                byCondition.clear(); // barrier
+                continue;
+            }
+            if( result.getClass() != CssRuleOutput.class ) {
+                continue;
+            }
+            CssRuleOutput rule = (CssRuleOutput)result;
+            String[] selectors = rule.getSelectors();
+            if( selectors.length != 1 || !selectors[0].startsWith( "@media" ) || rule.length() == 0 ) {
+                continue;
+            }
+            Integer target = byCondition.get( selectors[0] );
+            if( target != null && isMovable( families, removed, target, i ) ) {
+                CssRuleOutput targetRule = (CssRuleOutput)results.get( target );
+                StringBuilder output = targetRule.getOutput();
+                if( sourceMap != null ) {
+                    sourceMap.moveTo( output, rule.getOutput(), output.length() );
+                }
+                output.append( rule.getOutput() );
+                families.get( target ).addAll( resultFamilies );
+                removed[i] = changed = true;
+            } else {
+                byCondition.put( selectors[0], i );
+            }
+        }
+
+        if( changed ) {
+            ArrayList<CssOutput> merged = new ArrayList<>( results.size() );
+            for( int i = 0; i < results.size(); i++ ) {
+                if( !removed[i] ) {
+                    merged.add( results.get( i ) );
+                }
+            }
+            results.clear();
+            results.addAll( merged );
+        }
+    }
+
+    /**
+     * Get the property families of a result.
+     * 
+     * @param result
+     *            a formatted result
+     * @return the families or null if the result can not be moved over
+     */
+    private static HashSet<String> families( CssOutput result ) {
+        HashSet<String> families = new HashSet<>();
+        if( result.length() == 0 ) {
+            return families;
+        }
+        if( result.getClass() != CssRuleOutput.class ) {
+            return null;
+        }
+        CssRuleOutput rule = (CssRuleOutput)result;
+        String selector = rule.getSelectors()[0];
+        if( selector.startsWith( "@font-face" ) || selector.contains( "keyframes" ) ) {
+            return families; // does not apply to elements
+        }
+        StringBuilder output = rule.getOutput();
+        if( !selector.startsWith( "@" ) ) {
+            return addFamilies( families, output );
+        }
+        if( !selector.startsWith( "@media" ) && !selector.startsWith( "@supports" ) ) {
+            return null;
+        }
+        // nested rules
+        int start = -1;
+        char quote = 0;
+        for( int i = 0; i < output.length(); i++ ) {
+            char ch = output.charAt( i );
+            if( quote != 0 ) {
+                if( ch == '\\' ) {
+                    i++;
+                } else if( ch == quote ) {
+                    quote = 0;
+                }
+                continue;
+            }
+            switch( ch ) {
+                case '{':
+                    if( start >= 0 ) {
+                        return null;
+                    }
+                    start = i + 1;
+                    break;
+                case '}':
+                    if( start < 0 || addFamilies( families, output.subSequence( start, i ) ) == null ) {
+                        return null;
+                    }
+                    start = -1;
+                    break;
+                case '"':
+                case '\'':
+                    quote = ch;
+                    break;
+            }
+        }
+        return families;
+    }
+
+    /**
+     * Add the property families of a declaration list.
+     * 
+     * @param families
+     *            the target
+     * @param content
+     *            the declarations
+     * @return the families or null if the content can not be parsed
+     */
+    private static HashSet<String> addFamilies( HashSet<String> families, CharSequence content ) {
+        List<Declaration> declarations = parseDeclarations( content );
+        if( declarations == null ) {
+            return null;
+        }
+        for( Declaration declaration : declarations ) {
+            addFamilies( families, declaration.name );
+        }
+        return families;
+    }
+
+    /**
+     * If a result can be moved to an earlier index without changing the cascade.
+     * 
+     * @param families
+     *            the families of all results
+     * @param removed
+     *            the already removed results
+     * @param target
+     *            the earlier index
+     * @param index
+     *            the index of the result that should be moved
+     * @return true, if no result between sets a property of the same family
+     */
+    private static boolean isMovable( List<HashSet<String>> families, boolean[] removed, int target, int index ) {
+        HashSet<String> moved = families.get( index );
+        for( int i = target + 1; i < index; i++ ) {
+            HashSet<String> between = families.get( i );
+            if( !removed[i] ) {
+                if( between.contains( "all" ) || (moved.contains( "all" ) && !between.isEmpty()) ) {
+                    return false;
+                }
+                for( String family : moved ) {
+                    if( between.contains( family ) ) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * If a selector list contains a vendor specific pseudo class or element like "::-moz-placeholder". A browser drop
+     * the complete rule if it does not know one of the selectors. Such selectors must be never merged with other
+     * selectors.
+     * 
+     * @param selectors
+     *            the selectors
+     * @return true, if there is a vendor specific selector
+     */
+    private static boolean hasVendorPseudo( String[] selectors ) {
+        for( String selector : selectors ) {
+            if( selector.contains( ":-" ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Create the block data for a simple rule and drop the overridden properties.
+     * 
+     * @param result
+     *            a formatted result
+     * @param index
+     *            the index in the results
+     * @param sourceMap
+     *            the source map recorder or null
+     * @return the block or null if the result is not a simple rule
+     */
+    private static Block createBlock( CssOutput result, int index, SourceMapBuilder sourceMap ) {
+        if( result.getClass() != CssRuleOutput.class ) {
+            return null;
+        }
+        CssRuleOutput rule = (CssRuleOutput)result;
+        if( rule.getSelectors()[0].startsWith( "@" ) || rule.length() == 0 ) {
+            return null;
+        }
+        Block block = new Block( rule, index );
+        if( !parseContent( block, sourceMap ) ) {
+            return null;
+        }
+        block.selectorKey = selectorKey( rule.getSelectors() );
+        return block;
+    }
+
+    /**
+     * If the result produce no output.
+     * 
+     * @param result
+     *            a formatted result
+     * @return true, if empty
+     */
+    private static boolean isEmpty( CssOutput result ) {
+        return result.length() == 0;
+    }
+
+    /**
+     * Create a key for a selector list.
+     * 
+     * @param selectors
+     *            the selectors
+     * @return the key
+     */
+    private static String selectorKey( String[] selectors ) {
+        StringBuilder builder = new StringBuilder();
+        for( String selector : selectors ) {
+            builder.append( selector ).append( '\n' );
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Parse the declarations of the block, remove overridden declarations and collect the property families.
+     * 
+     * @param block
+     *            the block
+     * @param sourceMap
+     *            the source map recorder or null
+     * @return false, if the content can not be parsed as simple list of declarations
+     */
+    private static boolean parseContent( Block block, SourceMapBuilder sourceMap ) {
+        StringBuilder output = block.rule.getOutput();
+        List<Declaration> declarations = parseDeclarations( output );
+        if( declarations == null ) {
+            return false;
+        }
+        HashMap<String, Declaration> last = new HashMap<>();
+        ArrayList<Declaration> overridden = new ArrayList<>();
+        for( Declaration declaration : declarations ) {
+            Declaration previous = last.put( declaration.name, declaration );
+            if( previous != null && isOverridden( previous, declaration ) ) {
+                overridden.add( previous );
+            }
+            addFamilies( block.families, declaration.name );
+        }
+        for( int i = overridden.size() - 1; i >= 0; i-- ) {
+            Declaration declaration = overridden.get( i );
+            output.delete( declaration.start, declaration.end );
+            if( sourceMap != null ) {
+                sourceMap.delete( output, declaration.start, declaration.end );
+            }
+        }
+        block.body = output.toString();
+        return true;
+    }
+
+    /**
+     * Split the content of a block into declarations.
+     * 
+     * @param output
+     *            the content
+     * @return the declarations or null if there are comments, nested blocks or other unknown content
+     */
+    private static List<Declaration> parseDeclarations( CharSequence output ) {
+        ArrayList<Declaration> declarations = new ArrayList<>();
+        int length = output.length();
+        int start = 0;
+        while( start < length ) {
+            int colon = -1;
+            int parenthesis = 0;
+            char quote = 0;
+            int pos = start;
+            LOOP: for( ; pos < length; pos++ ) {
+                char ch = output.charAt( pos );
+                if( quote != 0 ) {
+                    if( ch == '\\' ) {
+                        pos++;
+                    } else if( ch == quote ) {
+                        quote = 0;
+                    }
+                    continue;
+                }
+                switch( ch ) {
+                    case '"':
+                    case '\'':
+                        quote = ch;
+                        break;
+                    case '(':
+                        parenthesis++;
+                        break;
+                    case ')':
+                        parenthesis--;
+                        break;
+                    case ':':
+                        if( colon < 0 ) {
+                            colon = pos;
+                        }
+                        break;
+                    case ';':
+                        if( parenthesis == 0 ) {
+                            break LOOP;
+                        }
+                        break;
+                    case '{':
+                    case '}':
+                    case '@':
+                        return null;
+                    case '/':
+                        if( pos + 1 < length && output.charAt( pos + 1 ) == '*' ) {
+                            return null;
+                        }
+                        break;
+                }
+            }
+            int valueEnd = pos;
+            if( pos < length ) {
+                pos++; // the semicolon
+                while( pos < length && output.charAt( pos ) == ' ' ) {
+                    pos++;
+                }
+                if( pos < length && output.charAt( pos ) == '\n' ) {
+                    pos++;
+                }
+            }
+            if( colon < 0 ) {
+                if( output.subSequence( start, valueEnd ).toString().trim().isEmpty() ) {
+                    start = pos;
+                    continue;
+                }
+                return null;
+            }
+            Declaration declaration = new Declaration();
+            declaration.start = start;
+            declaration.end = pos;
+            declaration.name = output.subSequence( start, colon ).toString().trim();
+            String value = output.subSequence( colon + 1, valueEnd ).toString().trim();
+            if( value.endsWith( "!important" ) ) {
+                declaration.important = true;
+                value = value.substring( 0, value.length() - 10 ).trim();
+            }
+            declaration.value = value;
+            declarations.add( declaration );
+            start = pos;
+        }
+        return declarations;
+    }
+
+    /**
+     * If a declaration can be dropped because a later declaration with the same name overrides it. Fallbacks for older
+     * browsers like vendor specific values, functions and hacks are never dropped.
+     * 
+     * @param previous
+     *            the earlier declaration
+     * @param declaration
+     *            the later declaration
+     * @return true, if the earlier declaration has no effect
+     */
+    private static boolean isOverridden( Declaration previous, Declaration declaration ) {
+        if( previous.important && !declaration.important ) {
+            return false;
+        }
+        char ch = declaration.name.charAt( 0 );
+        if( ch == '*' || ch == '_' ) {
+            return false;
+        }
+        if( previous.value.equals( declaration.value ) ) {
+            return true;
+        }
+        return isPlain( previous.value ) && isPlain( declaration.value ) && valueClass( previous.value ).equals( valueClass( declaration.value ) );
+    }
+
+    /**
+     * Get the classes of the parts of a value. Every number is replaced with its unit, every keyword with "a", colors
+     * with "#" and strings with a quote. A value with a unit like "rem" or "vh" is often a fallback for older browsers
+     * with a value in another unit.
+     * 
+     * @param value
+     *            the value
+     * @return the class, equals for values that are supported from the same browsers
+     */
+    private static String valueClass( String value ) {
+        StringBuilder builder = new StringBuilder();
+        int length = value.length();
+        for( int i = 0; i < length; ) {
+            char ch = value.charAt( i );
+            if( ch == ' ' || ch == ',' || ch == '/' ) {
+                builder.append( ch );
+                i++;
+                continue;
+            }
+            int end = i;
+            while( end < length && " ,/".indexOf( value.charAt( end ) ) < 0 ) {
+                end++;
+            }
+            if( ch == '#' ) {
+                builder.append( '#' );
+            } else if( ch == '"' || ch == '\'' ) {
+                builder.append( '"' );
+            } else {
+                int unit = i;
+                while( unit < end && "+-.0123456789".indexOf( value.charAt( unit ) ) >= 0 ) {
+                    unit++;
+                }
+                if( unit == i ) {
+                    builder.append( 'a' ); // keyword
+                } else {
+                    builder.append( '0' ).append( value, unit, end ).append( ' ' );
+                }
+            }
+            i = end;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * If a value is supported by every browser that supports the property.
+     * 
+     * @param value
+     *            the value
+     * @return false, if it contains functions, vendor prefixes or hacks
+     */
+    private static boolean isPlain( String value ) {
+        return value.indexOf( '(' ) < 0 && !value.startsWith( "-" ) && value.indexOf( '\\' ) < 0;
+    }
+
+    /**
+     * Add the families of a property. Properties of the same family can influence each other, for example shorthand
+     * and longhand properties. The family is the first part of the name without vendor prefix. Shorthands that reset
+     * properties with another name are added to all these families.
+     * 
+     * @param families
+     *            the target
+     * @param name
+     *            the property name
+     */
+    private static void addFamilies( HashSet<String> families, String name ) {
+        name = name.toLowerCase();
+        if( name.startsWith( "-" ) ) {
+            int idx = name.indexOf( '-', 1 );
+            if( idx > 0 ) {
+                name = name.substring( idx + 1 );
+            }
+        }
+        String[] shorthand = SHORTHANDS.get( name );
+        if( shorthand != null ) {
+            families.addAll( Arrays.asList( shorthand ) );
+        }
+        int idx = name.indexOf( '-' );
+        if( idx > 0 ) {
+            name = name.substring( 0, idx );
+        }
+        switch( name ) {
+            case "top":
+            case "right":
+            case "bottom":
+            case "left":
+                families.add( "inset" );
+                break;
+            default:
+                families.add( name );
+        }
+    }
+
+    /**
+     * If a block can be moved to an earlier target block without changing the cascade.
+     * 
+     * @param blocks
+     *            all blocks
+     * @param target
+     *            the earlier block
+     * @param block
+     *            the block that should be moved
+     * @return true, if no block between sets a property of the same family
+     */
+    private static boolean isMovable( List<Block> blocks, Block target, Block block ) {
+        if( block.families.contains( "all" ) ) {
+            return target.index == block.index - 1;
+        }
+        for( int i = target.index + 1; i < block.index; i++ ) {
+            Block between = blocks.get( i );
+            if( between != null && !between.removed ) {
+                if( between.families.contains( "all" ) ) {
+                    return false;
+                }
+                for( String family : block.families ) {
+                    if( between.families.contains( family ) ) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Append the declarations of a block to a block with the same selectors.
+     * 
+     * @param target
+     *            the earlier block
+     * @param block
+     *            the block with the same selectors
+     * @param sourceMap
+     *            the source map recorder or null
+     */
+    private static void appendContent( Block target, Block block, SourceMapBuilder sourceMap ) {
+        StringBuilder output = target.rule.getOutput();
+        int idx = output.length() - 1;
+        while( idx >= 0 && Character.isWhitespace( output.charAt( idx ) ) ) {
+            idx--;
+        }
+        if( idx >= 0 && output.charAt( idx ) != ';' ) {
+            output.append( ';' ); // compressed output without last semicolon
+        }
+        if( sourceMap != null ) {
+            sourceMap.moveTo( output, block.rule.getOutput(), output.length() );
+        }
+        output.append( block.rule.getOutput() );
+        target.families.addAll( block.families );
+        parseContent( target, sourceMap );
+    }
+}
@@ -32,10 +32,34 @@ package com.inet.lib.less;
  */
 abstract class CssOutput {
 
+    private boolean reference;
+
     /**
      * Write the this output to the target
      * @param target the target
      * @param formatter a formatter
      */
     abstract void appendTo( StringBuilder target, LessExtendMap lessExtends, CssFormatter formatter );
+
+    /**
+     * Get the size of the formatted content without selectors.
+     * @return the size
+     */
+    abstract int length();
+
+    /**
+     * If this output was formatted from a rule of a reference import.
+     * @return true, if it should only be written for extending selectors
+     */
+    boolean isReference() {
+        return reference;
+    }
+
+    /**
+     * Set if this output was formatted from a rule of a reference import.
+     * @param reference true, if it should only be written for extending selectors
+     */
+    void setReference( boolean reference ) {
+        this.reference = reference;
+    }
 }
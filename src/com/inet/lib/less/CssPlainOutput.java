@@ -44,4 +44,12 @@ class CssPlainOutput extends CssOutput {
     void appendTo( StringBuilder target, LessExtendMap lessExtends, CssFormatter formatter ) {
         target.append( output );
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int length() {
+        return output.length();
+    }
 }
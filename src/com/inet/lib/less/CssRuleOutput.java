@@ -51,9 +51,25 @@ class CssRuleOutput extends CssOutput {
     @Override
     void appendTo( StringBuilder target, LessExtendMap lessExtends, CssFormatter formatter ) {
         if( output.length() > 0 ) {
-            selectors = lessExtends.concatenateExtends( selectors );
-            formatter.startBlockImpl( selectors );
-            target.append( output );
+            CompileStats stats = formatter.getStats();
+            if( stats == null ) {
+                selectors = lessExtends.concatenateExtends( selectors );
+            } else {
+                long start = System.nanoTime();
+                selectors = lessExtends.concatenateExtends( selectors );
+                stats.addExtendTime( System.nanoTime() - start );
+            }
+            SourceMapBuilder sourceMap = formatter.getSourceMap();
+            if( sourceMap == null ) {
+                formatter.startBlockImpl( selectors );
+                target.append( output );
+            } else {
+                int selectorStart = target.length();
+                formatter.startBlockImpl( selectors );
+                int contentStart = target.length();
+                target.append( output );
+                sourceMap.writeBlock( target, selectorStart, output, contentStart );
+            }
             formatter.endBlockImpl();
         }
     }
@@ -66,6 +82,14 @@ class CssRuleOutput extends CssOutput {
         return selectors;
     }
 
+    /**
+     * Set the selectors of this rule.
+     * @param selectors the new selectors
+     */
+    void setSelectors( String[] selectors ) {
+        this.selectors = selectors;
+    }
+
     /**
      * Get the output of this rule.
      * @return the output
@@ -73,4 +97,12 @@ class CssRuleOutput extends CssOutput {
     StringBuilder getOutput() {
         return output;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int length() {
+        return output.length();
+    }
 }
@@ -0,0 +1,83 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+/**
+ * The compressed result of a compilation with gzip or deflate. It hold the sizes of the CSS data before and after the
+ * compression so that the compressed data can be cached and served directly.
+ */
+public class DeflatedCss {
+
+    private final byte[] data;
+
+    private final long   size;
+
+    private final long   compressedSize;
+
+    /**
+     * Create an instance.
+     * 
+     * @param data
+     *            the compressed data or null if it was written to a stream
+     * @param size
+     *            the size of the UTF-8 encoded CSS data
+     * @param compressedSize
+     *            the size of the compressed data
+     */
+    DeflatedCss( byte[] data, long size, long compressedSize ) {
+        this.data = data;
+        this.size = size;
+        this.compressedSize = compressedSize;
+    }
+
+    /**
+     * The compressed CSS data.
+     * 
+     * @return the data or null if it was written to a stream
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * The size of the UTF-8 encoded CSS data before the compression.
+     * 
+     * @return the size in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * The size of the compressed data including the gzip header and trailer.
+     * 
+     * @return the size in bytes
+     */
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+}
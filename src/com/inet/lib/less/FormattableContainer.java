@@ -26,8 +26,6 @@
  */
 package com.inet.lib.less;
 
-import java.util.HashMap;
-
 /**
  * A interface of for sharing feature between root and rules.
  */
@@ -35,5 +33,13 @@ interface FormattableContainer {
 
     void add( Formattable formattable );
 
-    HashMap<String, Expression> getVariables();
+    /**
+     * Add a variable declaration to the container.
+     * 
+     * @param name
+     *            the name of the variable starting with @
+     * @param value
+     *            the value of the variable
+     */
+    void addVariable( String name, Expression value );
 }
@@ -58,12 +58,6 @@ class FunctionExpression extends AbstractExpression {
 
     private final List<Expression> parameters;
 
-    private int                    type;
-
-    private double                 doubleValue;
-
-    private boolean                booleanValue;
-
     FunctionExpression( LessLookAheadReader reader, String str, Operation parameters ) {
         super( reader, str );
         this.parameters = parameters.getOperands();
@@ -74,10 +68,8 @@ class FunctionExpression extends AbstractExpression {
      */
     @Override
     public int getDataType( CssFormatter formatter ) {
-        if( type == UNKNOWN ) {
-            eval( formatter );
-        }
-        return type;
+        // the type can depend on the parameters of the calling mixin
+        return eval( formatter ).type;
     }
 
     /**
@@ -85,8 +77,8 @@ class FunctionExpression extends AbstractExpression {
      */
     @Override
     public double doubleValue( CssFormatter formatter ) {
-        eval( formatter );
-        return doubleValue;
+        countCall( formatter );
+        return eval( formatter ).doubleValue;
     }
 
     /**
@@ -94,8 +86,8 @@ class FunctionExpression extends AbstractExpression {
      */
     @Override
     public boolean booleanValue( CssFormatter formatter ) {
-        eval( formatter );
-        return booleanValue;
+        countCall( formatter );
+        return eval( formatter ).booleanValue;
     }
 
     /**
@@ -137,6 +129,7 @@ class FunctionExpression extends AbstractExpression {
      */
     @Override
     public void appendTo( CssFormatter formatter ) {
+        countCall( formatter );
         try {
             switch( super.toString() ) {
                 case "%":
@@ -170,7 +163,7 @@ class FunctionExpression extends AbstractExpression {
                                 quote = true;
                             }
                         }
-                        str = new RegExp( pattern, flags ).replace( str, replacement );
+                        str = RegExp.get( pattern, flags ).replace( str, replacement );
                         if( quote ) {
                             str = ch + str + ch;
                         }
@@ -233,10 +226,8 @@ class FunctionExpression extends AbstractExpression {
                     UrlUtils.dataUri( formatter, baseUrl, url, type );
                     return;
             }
-            if( type == UNKNOWN ) {
-                eval( formatter );
-            }
-            if( type == STRING ) {
+            Value value = eval( formatter );
+            if( value.type == STRING ) {
                 if( super.toString().equals( "" ) ) { //parenthesis
                     get( 0 ).appendTo( formatter );
                 } else {
@@ -244,12 +235,25 @@ class FunctionExpression extends AbstractExpression {
                 }
                 return;
             }
-            super.appendTo( formatter );
+            appendValue( formatter, value.type, value.doubleValue, value.booleanValue );
         } catch ( Throwable th ) {
             throw createException( th );
         }
     }
 
+    /**
+     * Count the use of this function if statistics are enabled.
+     * 
+     * @param formatter
+     *            the CCS target
+     */
+    private void countCall( CssFormatter formatter ) {
+        CompileStats stats = formatter.getStats();
+        if( stats != null && !super.toString().isEmpty() ) { // not for parenthesis
+            stats.functionCall( super.toString() );
+        }
+    }
+
     /**
      * Write the function without change. We does not know it. It can/must be a CSS function.
      * @param formatter the formatter
@@ -265,330 +269,338 @@ class FunctionExpression extends AbstractExpression {
         formatter.append( ')' );
     }
 
-    private void eval( CssFormatter formatter ) {
+    /**
+     * Evaluate the function in the context of the formatter. The result is not saved in the expression because the same
+     * expression can be evaluated in different contexts and from different threads.
+     * 
+     * @param formatter the CSS formatter
+     * @return the type and value
+     */
+    private Value eval( CssFormatter formatter ) {
+        Value result = new Value();
         try {
             switch( super.toString().toLowerCase() ) {
                 case "": //parenthesis
                     if( parameters.size() > 1 ) {
                         throw ((LessObject)get( 0 )).createException( "Unrecognised input" );
                     }
-                    type = get( 0 ).getDataType( formatter );
-                    if( type != STRING ) {
-                        doubleValue = getDouble( 0, formatter );
+                    result.type = get( 0 ).getDataType( formatter );
+                    if( result.type != STRING ) {
+                        result.doubleValue = getDouble( 0, formatter );
                     }
-                    return;
+                    return result;
                 case "percentage":
-                    type = PERCENT;
-                    doubleValue = getDouble( 0, formatter ) * 100;
-                    return;
+                    result.type = PERCENT;
+                    result.doubleValue = getDouble( 0, formatter ) * 100;
+                    return result;
                 case "convert":
-                    type = NUMBER;
+                    result.type = NUMBER;
                     String unit = get( 1 ).stringValue( formatter );
                     Expression param = get( 0 );
-                    doubleValue = param.doubleValue( formatter ) * Operation.unitFactor( param.unit( formatter ), unit );
-                    return;
+                    result.doubleValue = param.doubleValue( formatter ) * Operation.unitFactor( param.unit( formatter ), unit );
+                    return result;
                 case "abs":
-                    type = getNumberDataType( formatter );
-                    doubleValue = Math.abs( getDouble( 0, formatter ) );
-                    return;
+                    result.type = getNumberDataType( formatter );
+                    result.doubleValue = Math.abs( getDouble( 0, formatter ) );
+                    return result;
                 case "ceil":
-                    type = getNumberDataType( formatter );
-                    doubleValue = Math.ceil( getDouble( 0, formatter ) );
-                    return;
+                    result.type = getNumberDataType( formatter );
+                    result.doubleValue = Math.ceil( getDouble( 0, formatter ) );
+                    return result;
                 case "floor":
-                    type = getNumberDataType( formatter );
-                    doubleValue = Math.floor( getDouble( 0, formatter ) );
-                    return;
+                    result.type = getNumberDataType( formatter );
+                    result.doubleValue = Math.floor( getDouble( 0, formatter ) );
+                    return result;
                 case "mod":
-                    type = NUMBER;
-                    doubleValue = getDouble( 0, formatter ) % getDouble( 1, formatter );
-                    return;
+                    result.type = NUMBER;
+                    result.doubleValue = getDouble( 0, formatter ) % getDouble( 1, formatter );
+                    return result;
                 case "pi":
-                    type = NUMBER;
-                    doubleValue = Math.PI;
-                    return;
+                    result.type = NUMBER;
+                    result.doubleValue = Math.PI;
+                    return result;
                 case "round":
-                    type = getNumberDataType( formatter );
+                    result.type = getNumberDataType( formatter );
                     int decimalPlaces = getInt( 1, 0, formatter );
-                    doubleValue = getDouble( 0, formatter );
+                    result.doubleValue = getDouble( 0, formatter );
                     for( int i = 0; i < decimalPlaces; i++ ) {
-                        doubleValue *= 10;
+                        result.doubleValue *= 10;
                     }
-                    doubleValue = Math.round( doubleValue );
+                    result.doubleValue = Math.round( result.doubleValue );
                     for( int i = 0; i < decimalPlaces; i++ ) {
-                        doubleValue /= 10;
+                        result.doubleValue /= 10;
                     }
-                    return;
+                    return result;
                 case "min":
-                    type = NUMBER;
-                    doubleValue = get( 0 ).doubleValue( formatter );
+                    result.type = NUMBER;
+                    result.doubleValue = get( 0 ).doubleValue( formatter );
                     unit = unit( formatter );
                     for( int i = 1; i < parameters.size(); i++ ) {
                         param = parameters.get( i );
-                        doubleValue = Math.min( doubleValue, param.doubleValue( formatter ) / Operation.unitFactor( unit, param.unit( formatter ) ) );
+                        result.doubleValue = Math.min( result.doubleValue, param.doubleValue( formatter ) / Operation.unitFactor( unit, param.unit( formatter ) ) );
                     }
-                    return;
+                    return result;
                 case "max":
-                    type = NUMBER;
-                    doubleValue = get( 0 ).doubleValue( formatter );
+                    result.type = NUMBER;
+                    result.doubleValue = get( 0 ).doubleValue( formatter );
                     unit = unit( formatter );
                     for( int i = 1; i < parameters.size(); i++ ) {
                         param = parameters.get( i );
-                        doubleValue = Math.max( doubleValue, param.doubleValue( formatter ) / Operation.unitFactor( unit, param.unit( formatter ) ) );
+                        result.doubleValue = Math.max( result.doubleValue, param.doubleValue( formatter ) / Operation.unitFactor( unit, param.unit( formatter ) ) );
                     }
-                    return;
+                    return result;
                 case "sqrt":
-                    type = NUMBER;
-                    doubleValue = Math.sqrt( getDouble( 0, formatter ) );
-                    return;
+                    result.type = NUMBER;
+                    result.doubleValue = Math.sqrt( getDouble( 0, formatter ) );
+                    return result;
                 case "pow":
-                    type = NUMBER;
-                    doubleValue = Math.pow( getDouble( 0, formatter ), getDouble( 1, formatter ) );
-                    return;
+                    result.type = NUMBER;
+                    result.doubleValue = Math.pow( getDouble( 0, formatter ), getDouble( 1, formatter ) );
+                    return result;
                 case "sin":
-                    type = NUMBER;
-                    doubleValue = Math.sin( getRadians( formatter ) );
-                    return;
+                    result.type = NUMBER;
+                    result.doubleValue = Math.sin( getRadians( formatter ) );
+                    return result;
                 case "cos":
-                    type = NUMBER;
-                    doubleValue = Math.cos( getRadians( formatter ) );
-                    return;
+                    result.type = NUMBER;
+                    result.doubleValue = Math.cos( getRadians( formatter ) );
+                    return result;
                 case "tan":
-                    type = NUMBER;
-                    doubleValue = Math.tan( getRadians( formatter ) );
-                    return;
+                    result.type = NUMBER;
+                    result.doubleValue = Math.tan( getRadians( formatter ) );
+                    return result;
                 case "acos":
-                    type = NUMBER;
-                    doubleValue = Math.acos( getRadians( formatter ) );
-                    return;
+                    result.type = NUMBER;
+                    result.doubleValue = Math.acos( getRadians( formatter ) );
+                    return result;
                 case "asin":
-                    type = NUMBER;
-                    doubleValue = Math.asin( getRadians( formatter ) );
-                    return;
+                    result.type = NUMBER;
+                    result.doubleValue = Math.asin( getRadians( formatter ) );
+                    return result;
                 case "atan":
-                    type = NUMBER;
-                    doubleValue = Math.atan( getRadians( formatter ) );
-                    return;
+                    result.type = NUMBER;
+                    result.doubleValue = Math.atan( getRadians( formatter ) );
+                    return result;
                 case "increment":
-                    type = NUMBER;
-                    doubleValue = getDouble( 0, formatter ) + 1;
-                    return;
+                    result.type = NUMBER;
+                    result.doubleValue = getDouble( 0, formatter ) + 1;
+                    return result;
                 case "add":
-                    type = NUMBER;
-                    doubleValue = getDouble( 0, formatter ) + getDouble( 1, formatter );
-                    return;
+                    result.type = NUMBER;
+                    result.doubleValue = getDouble( 0, formatter ) + getDouble( 1, formatter );
+                    return result;
                 case "length":
-                    type = NUMBER;
-                    doubleValue = getParamList( formatter ).size();
-                    return;
+                    result.type = NUMBER;
+                    result.doubleValue = getParamList( formatter ).size();
+                    return result;
                 case "extract":
                     List<Expression> exList = getParamList( formatter );
                     int idx = getInt( 1, formatter );
                     if( idx <= 0 || exList.size() < idx ) {
-                        type = STRING;
-                        return;
+                        result.type = STRING;
+                        return result;
                     }
                     Expression ex = exList.get( idx - 1 );
-                    type = ex.getDataType( formatter );
-                    if( type != STRING ) {
-                        doubleValue = ex.doubleValue( formatter );
+                    result.type = ex.getDataType( formatter );
+                    if( result.type != STRING ) {
+                        result.doubleValue = ex.doubleValue( formatter );
                     }
-                    return;
+                    return result;
                 case "alpha":
-                    type = NUMBER;
+                    result.type = NUMBER;
                     switch( get( 0 ).getDataType( formatter ) ) {
                         case RGBA:
-                            doubleValue = alpha( getDouble( 0, formatter ) );
+                            result.doubleValue = alpha( getDouble( 0, formatter ) );
                             break;
                         case COLOR:
-                            doubleValue = 1;
+                            result.doubleValue = 1;
                             break;
                         default:
-                            type = STRING;
+                            result.type = STRING;
                     }
-                    return;
+                    return result;
                 case "red":
-                    type = NUMBER;
-                    doubleValue = red( getDouble( 0, formatter ) );
-                    return;
+                    result.type = NUMBER;
+                    result.doubleValue = red( getDouble( 0, formatter ) );
+                    return result;
                 case "green":
-                    type = NUMBER;
-                    doubleValue = green( getDouble( 0, formatter ) );
-                    return;
+                    result.type = NUMBER;
+                    result.doubleValue = green( getDouble( 0, formatter ) );
+                    return result;
                 case "blue":
-                    type = NUMBER;
-                    doubleValue = blue( getDouble( 0, formatter ) );
-                    return;
+                    result.type = NUMBER;
+                    result.doubleValue = blue( getDouble( 0, formatter ) );
+                    return result;
                 case "rgba":
-                    type = RGBA;
+                    result.type = RGBA;
                     int r = getColorDigit( 0, formatter );
                     int g = getColorDigit( 1, formatter );
                     int b = getColorDigit( 2, formatter );
                     double a = getPercent( 3, formatter );
-                    doubleValue = rgba( r, g, b, a );
-                    return;
+                    result.doubleValue = rgba( r, g, b, a );
+                    return result;
                 case "rgb":
-                    type = COLOR;
+                    result.type = COLOR;
                     r = getColorDigit( 0, formatter );
                     g = getColorDigit( 1, formatter );
                     b = getColorDigit( 2, formatter );
-                    doubleValue = rgb( r, g, b );
-                    return;
+                    result.doubleValue = rgb( r, g, b );
+                    return result;
                 case "argb":
-                    type = STRING;
-                    return;
+                    result.type = STRING;
+                    return result;
                 case "saturate":
-                    type = COLOR;
+                    result.type = COLOR;
                     HSL hsl = toHSL( getDouble( 0, formatter ) );
                     hsl.s += getPercent( 1, formatter );
-                    doubleValue = hsla( hsl );
-                    return;
+                    result.doubleValue = hsla( hsl );
+                    return result;
                 case "desaturate":
-                    type = COLOR;
+                    result.type = COLOR;
                     hsl = toHSL( getDouble( 0, formatter ) );
                     hsl.s -= getPercent( 1, formatter );
-                    doubleValue = hsla( hsl );
-                    return;
+                    result.doubleValue = hsla( hsl );
+                    return result;
                 case "greyscale":
-                    type = COLOR;
+                    result.type = COLOR;
                     hsl = toHSL( getDouble( 0, formatter ) );
                     hsl.s = 0;
-                    doubleValue = hsla( hsl );
-                    return;
+                    result.doubleValue = hsla( hsl );
+                    return result;
                 case "mix":
-                    double c1 = getColor( 0, formatter );
-                    double c2 = getColor( 1, formatter );
+                    double c1 = getColor( 0, result, formatter );
+                    double c2 = getColor( 1, result, formatter );
                     double weight = getPercent( 2, 0.5, formatter );
-                    doubleValue = mix( c1, c2, weight );
-                    return;
+                    result.doubleValue = mix( c1, c2, weight );
+                    return result;
                 case "saturation":
-                    type = PERCENT;
+                    result.type = PERCENT;
                     hsl = toHSL( getDouble( 0, formatter ) );
-                    doubleValue = hsl.s * 100;
-                    return;
+                    result.doubleValue = hsl.s * 100;
+                    return result;
                 case "hsl":
-                    type = COLOR;
-                    doubleValue = hsla( getDouble( 0, formatter ), getPercent( 1, formatter ), getPercent( 2, formatter ), 1 );
-                    return;
+                    result.type = COLOR;
+                    result.doubleValue = hsla( getDouble( 0, formatter ), getPercent( 1, formatter ), getPercent( 2, formatter ), 1 );
+                    return result;
                 case "hsla":
-                    type = RGBA;
-                    doubleValue = hsla( getDouble( 0, formatter ), getPercent( 1, formatter ), getPercent( 2, formatter ), getPercent( 3, formatter ) );
-                    return;
+                    result.type = RGBA;
+                    result.doubleValue = hsla( getDouble( 0, formatter ), getPercent( 1, formatter ), getPercent( 2, formatter ), getPercent( 3, formatter ) );
+                    return result;
                 case "hue":
-                    type = NUMBER;
+                    result.type = NUMBER;
                     hsl = toHSL( getDouble( 0, formatter ) );
-                    doubleValue = hsl.h;
-                    return;
+                    result.doubleValue = hsl.h;
+                    return result;
                 case "lightness":
-                    type = PERCENT;
+                    result.type = PERCENT;
                     hsl = toHSL( getDouble( 0, formatter ) );
-                    doubleValue = hsl.l * 100;
-                    return;
+                    result.doubleValue = hsl.l * 100;
+                    return result;
                 case "spin":
-                    type = COLOR;
+                    result.type = COLOR;
                     hsl = toHSL( getDouble( 0, formatter ) );
                     hsl.h += getDouble( 1, formatter );
-                    doubleValue = hsla( hsl );
-                    return;
+                    result.doubleValue = hsla( hsl );
+                    return result;
                 case "lighten":
-                    hsl = toHSL( getColor( 0, formatter ) );
+                    hsl = toHSL( getColor( 0, result, formatter ) );
                     hsl.l += getPercent( 1, formatter );
-                    doubleValue = hsla( hsl );
-                    return;
+                    result.doubleValue = hsla( hsl );
+                    return result;
                 case "darken":
-                    hsl = toHSL( getColor( 0, formatter ) );
+                    hsl = toHSL( getColor( 0, result, formatter ) );
                     hsl.l -= getPercent( 1, formatter );
-                    doubleValue = hsla( hsl );
-                    return;
+                    result.doubleValue = hsla( hsl );
+                    return result;
                 case "fadein":
-                    type = RGBA;
+                    result.type = RGBA;
                     hsl = toHSL( getDouble( 0, formatter ) );
                     hsl.a += getPercent( 1, formatter );
-                    doubleValue = hsla( hsl );
-                    return;
+                    result.doubleValue = hsla( hsl );
+                    return result;
                 case "fadeout":
-                    type = RGBA;
+                    result.type = RGBA;
                     hsl = toHSL( getDouble( 0, formatter ) );
                     hsl.a -= getPercent( 1, formatter );
-                    doubleValue = hsla( hsl );
-                    return;
+                    result.doubleValue = hsla( hsl );
+                    return result;
                 case "fade":
-                    type = RGBA;
+                    result.type = RGBA;
                     hsl = toHSL( getDouble( 0, formatter ) );
                     hsl.a = getPercent( 1, formatter );
-                    doubleValue = hsla( hsl );
-                    return;
+                    result.doubleValue = hsla( hsl );
+                    return result;
                 case "hsv":
-                    type = COLOR;
-                    doubleValue = hsva( getPercent( 0, formatter ), getPercent( 1, formatter ), getPercent( 2, formatter ), 1 );
-                    return;
+                    result.type = COLOR;
+                    result.doubleValue = hsva( getPercent( 0, formatter ), getPercent( 1, formatter ), getPercent( 2, formatter ), 1 );
+                    return result;
                 case "hsva":
-                    type = RGBA;
-                    doubleValue = hsva( getPercent( 0, formatter ), getPercent( 1, formatter ), getPercent( 2, formatter ), getPercent( 3, formatter ) );
-                    return;
+                    result.type = RGBA;
+                    result.doubleValue = hsva( getPercent( 0, formatter ), getPercent( 1, formatter ), getPercent( 2, formatter ), getPercent( 3, formatter ) );
+                    return result;
                 case "hsvhue":
-                    doubleValue = toHSV( getColor( 0, formatter ) ).h;
-                    type = NUMBER;
-                    return;
+                    result.doubleValue = toHSV( getColor( 0, result, formatter ) ).h;
+                    result.type = NUMBER;
+                    return result;
                 case "hsvsaturation":
-                    doubleValue = toHSV( getColor( 0, formatter ) ).s * 100;
-                    type = PERCENT;
-                    return;
+                    result.doubleValue = toHSV( getColor( 0, result, formatter ) ).s * 100;
+                    result.type = PERCENT;
+                    return result;
                 case "hsvvalue":
-                    doubleValue = toHSV( getColor( 0, formatter ) ).v * 100;
-                    type = PERCENT;
-                    return;
+                    result.doubleValue = toHSV( getColor( 0, result, formatter ) ).v * 100;
+                    result.type = PERCENT;
+                    return result;
                 case "contrast":
-                    double color = getColor( 0, formatter );
+                    double color = getColor( 0, result, formatter );
                     double dark = getDouble( 1, BLACK, formatter );
                     double light = getDouble( 2, WHITE, formatter );
                     double threshold = getPercent( 3, 0.43, formatter );
-                    doubleValue = contrast( color, dark, light, threshold );
-                    return;
+                    result.doubleValue = contrast( color, dark, light, threshold );
+                    return result;
                 case "luma":
-                    color = getColor( 0, formatter );
-                    type = PERCENT;
-                    doubleValue = luma( color ) * 100;
-                    return;
+                    color = getColor( 0, result, formatter );
+                    result.type = PERCENT;
+                    result.doubleValue = luma( color ) * 100;
+                    return result;
                 case "luminance":
-                    color = getColor( 0, formatter );
-                    type = PERCENT;
-                    doubleValue = luminance( color ) * 100;
-                    return;
+                    color = getColor( 0, result, formatter );
+                    result.type = PERCENT;
+                    result.doubleValue = luminance( color ) * 100;
+                    return result;
                 case "multiply":
-                    doubleValue = multiply( getColor( 0, formatter ), getColor( 1, formatter ) );
-                    return;
+                    result.doubleValue = multiply( getColor( 0, result, formatter ), getColor( 1, result, formatter ) );
+                    return result;
                 case "screen":
-                    doubleValue = screen(getColor(0, formatter), getColor(1, formatter));
-                    return;
+                    result.doubleValue = screen(getColor( 0, result, formatter ), getColor( 1, result, formatter ));
+                    return result;
                 case "unit":
-                    type = NUMBER;
-                    doubleValue = getDouble( 0, formatter );
-                    return;
+                    result.type = NUMBER;
+                    result.doubleValue = getDouble( 0, formatter );
+                    return result;
                 case "isnumber":
-                    type = BOOLEAN;
-                    booleanValue = get( 0 ).getDataType( formatter ) == NUMBER;
-                    return;
+                    result.type = BOOLEAN;
+                    result.booleanValue = get( 0 ).getDataType( formatter ) == NUMBER;
+                    return result;
                 case "-":
-                    type = get( 0 ).getDataType( formatter ) ;
-                    doubleValue = -getDouble( 0, formatter );
-                    return;
+                    result.type = get( 0 ).getDataType( formatter ) ;
+                    result.doubleValue = -getDouble( 0, formatter );
+                    return result;
                 case "%":
                 case "escape":
-                    type = STRING;
-                    return;
+                    result.type = STRING;
+                    return result;
             }
             if( super.toString().startsWith( "-" ) ) {
-                type = STRING;
-                return;
+                result.type = STRING;
+                return result;
             }
         } catch( ParameterOutOfBoundsException ex ) {
             // ignore and continue as CSS function
         } catch (RuntimeException ex ) {
             throw createException( ex );
         }
-        type = STRING;
-        return;
+        result.type = STRING;
+        return result;
     }
 
     private void format( CssFormatter formatter ) {
@@ -710,6 +722,15 @@ class FunctionExpression extends AbstractExpression {
         return parameters.get( idx );
     }
 
+    /**
+     * Get all parameters of this function.
+     * 
+     * @return the parameters
+     */
+    List<Expression> getParameters() {
+        return parameters;
+    }
+
     /**
      * Get the idx parameter from the parameter list as color digit.
      * 
@@ -777,16 +798,18 @@ class FunctionExpression extends AbstractExpression {
     }
 
     /**
-     * Get the idx parameter from the parameter list as color value. And set the type variable.
+     * Get the idx parameter from the parameter list as color value. And set the type of the result.
      * 
      * @param idx
      *            the index starting with 0
+     * @param result
+     *            the result of the current evaluation
      * @return the the color value
      */
-    private double getColor( int idx, CssFormatter formatter ) {
+    private double getColor( int idx, Value result, CssFormatter formatter ) {
         Expression exp = get( idx );
-        type = exp.getDataType( formatter );
-        switch( type ) {
+        result.type = exp.getDataType( formatter );
+        switch( result.type ) {
             case COLOR:
             case RGBA:
                 return exp.doubleValue( formatter );
@@ -842,4 +865,16 @@ class FunctionExpression extends AbstractExpression {
         result.add( ex0 );
         return result;
     }
+
+    /**
+     * The type and value of a single function evaluation.
+     */
+    private static class Value {
+
+        private int     type;
+
+        private double  doubleValue;
+
+        private boolean booleanValue;
+    }
 }
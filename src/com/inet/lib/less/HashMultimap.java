@@ -29,6 +29,7 @@ package com.inet.lib.less;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map.Entry;
 
 /**
  * A HashMap that hold multiple values for a single key.
@@ -51,6 +52,20 @@ class HashMultimap<K, V> {
         rules.add( rule );
     }
 
+    /**
+     * Add all values of another multimap. The values are appended after the existing values of the same key.
+     * 
+     * @param other
+     *            the other multimap
+     */
+    void addAll( HashMultimap<K, V> other ) {
+        for( Entry<K, List<V>> entry : other.map.entrySet() ) {
+            for( V value : entry.getValue() ) {
+                add( entry.getKey(), value );
+            }
+        }
+    }
+
     /**
      * Get all values for the given key. If no key exists then null is return.
      * 
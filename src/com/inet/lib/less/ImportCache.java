@@ -0,0 +1,88 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The content of imported less files that is shared between the compilations of a batch. Every file is read only once.
+ */
+class ImportCache {
+
+    private final ConcurrentHashMap<String, String> contents = new ConcurrentHashMap<>();
+
+    /**
+     * Open a reader for the content of the url.
+     * 
+     * @param url
+     *            the url of the imported file
+     * @return the reader
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    Reader open( URL url ) throws IOException {
+        // the string is used as key because URL.equals() resolve the host name
+        String key = url.toString();
+        String content = contents.get( key );
+        if( content == null ) {
+            content = read( url );
+            String previous = contents.putIfAbsent( key, content );
+            if( previous != null ) {
+                content = previous;
+            }
+        }
+        return new StringReader( content );
+    }
+
+    /**
+     * Read the full content of the url.
+     * 
+     * @param url
+     *            the url
+     * @return the content
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    private static String read( URL url ) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        char[] buffer = new char[8192];
+        try (InputStream input = url.openStream(); Reader reader = new InputStreamReader( input, StandardCharsets.UTF_8 )) {
+            int count;
+            while( (count = reader.read( buffer )) > 0 ) {
+                builder.append( buffer, 0, count );
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+/**
+ * The content of a file that was imported with the option "inline". It is written without any parsing.
+ */
+class InlineImport implements Formattable {
+
+    private final String content;
+
+    /**
+     * Create an instance.
+     * 
+     * @param content
+     *            the content of the imported file
+     */
+    InlineImport( String content ) {
+        this.content = content;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final int getType() {
+        return CSS_AT_RULE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void appendTo( CssFormatter formatter ) {
+        int end = content.length();
+        while( end > 0 && Character.isWhitespace( content.charAt( end - 1 ) ) ) {
+            end--;
+        }
+        if( end > 0 ) {
+            formatter.getOutput().append( content, 0, end );
+            formatter.newline();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.util.ArrayList;
+
+/**
+ * A selector, property name or string with placeholders for variables like "@{name}". The text is split once on
+ * parsing into literal text and variable names. The formatting must not scan the text again and a text without
+ * placeholders is appended directly.
+ */
+final class Interpolation {
+
+    private final String   text;
+
+    /**
+     * Alternating literal text and variable names, starting and ending with literal text. Null if there is no
+     * placeholder.
+     */
+    private final String[] parts;
+
+    private Interpolation( String text, String[] parts ) {
+        this.text = text;
+        this.parts = parts;
+    }
+
+    /**
+     * Parse a selector. Placeholders are only searched from the first '@' character after the start.
+     * 
+     * @param selector
+     *            the selector
+     * @return the template
+     */
+    static Interpolation selector( String selector ) {
+        return parse( selector, selector.startsWith( "@{" ) ? 0 : selector.indexOf( '@', 1 ) );
+    }
+
+    /**
+     * Parse a text. Variables with the syntax "@name" are also replaced outside of quotes.
+     * 
+     * @param str
+     *            the text
+     * @param start
+     *            the index from which placeholders are searched, a negative value for a text without placeholders
+     * @return the template
+     */
+    static Interpolation parse( String str, int start ) {
+        if( start < 0 || str.indexOf( '@', start ) < 0 ) {
+            return new Interpolation( str, null );
+        }
+        ArrayList<String> parts = new ArrayList<>();
+        int appendIdx = 0;
+        char quote = 0;
+        for( int i = start; i < str.length(); i++ ) {
+            char ch = str.charAt( i );
+            switch( ch ) {
+                case '\"':
+                case '\'':
+                    if( quote == 0 ) {
+                        quote = ch;
+                    } else {
+                        quote = 0;
+                    }
+                    break;
+                case '@':
+                    String name;
+                    int nextIdx;
+                    if( str.length() > i + 1 && str.charAt( i + 1 ) == '{' ) {
+                        nextIdx = str.indexOf( '}', i );
+                        if( nextIdx < 0 ) {
+                            break; // not terminated placeholder
+                        }
+                        name = '@' + str.substring( i + 2, nextIdx );
+                        nextIdx++;
+                    } else {
+                        if( quote != 0 ) {
+                            break;
+                        }
+                        LOOP: for( nextIdx = i + 1; nextIdx < str.length(); nextIdx++ ) {
+                            ch = str.charAt( nextIdx );
+                            switch( ch ) {
+                                case ' ':
+                                case ')':
+                                case ',':
+                                case '\"':
+                                case '\'':
+                                    break LOOP;
+                            }
+                        }
+                        name = str.substring( i, nextIdx );
+                    }
+                    parts.add( str.substring( appendIdx, i ) );
+                    parts.add( name );
+                    appendIdx = nextIdx;
+                    i = nextIdx - 1;
+                    break;
+            }
+        }
+        if( parts.isEmpty() ) {
+            return new Interpolation( str, null );
+        }
+        parts.add( str.substring( appendIdx ) );
+        return new Interpolation( str, parts.toArray( new String[parts.size()] ) );
+    }
+
+    /**
+     * If the text has no placeholders.
+     * 
+     * @return true, if constant
+     */
+    boolean isConstant() {
+        return parts == null;
+    }
+
+    /**
+     * Append the text with the values of the variables.
+     * 
+     * @param formatter
+     *            current formatter
+     * @param caller
+     *            the object for the position of an exception
+     */
+    void appendTo( CssFormatter formatter, LessObject caller ) {
+        if( parts == null ) {
+            formatter.append( text );
+            return;
+        }
+        for( int i = 0; i < parts.length; i++ ) {
+            String part = parts[i];
+            if( (i & 1) == 0 ) {
+                if( !part.isEmpty() ) {
+                    formatter.append( part );
+                }
+            } else {
+                Expression exp = formatter.getVariable( part );
+                if( exp == null ) {
+                    throw caller.createException( "Undefine Variable: " + part );
+                }
+                formatter.setInineMode( true );
+                exp.appendTo( formatter );
+                formatter.setInineMode( false );
+            }
+        }
+    }
+
+    /**
+     * Get the text with the values of the variables.
+     * 
+     * @param formatter
+     *            current formatter
+     * @param caller
+     *            the object for the position of an exception
+     * @return the text, the same instance if there are no placeholders
+     */
+    String toString( CssFormatter formatter, LessObject caller ) {
+        if( parts == null ) {
+            return text;
+        }
+        formatter.addOutput();
+        appendTo( formatter, caller );
+        return formatter.releaseOutput();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return text;
+    }
+}
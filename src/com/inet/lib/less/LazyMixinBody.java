@@ -0,0 +1,108 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.io.StringReader;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * The not parsed content of a mixin declaration. It is parsed on the first use of the mixin.
+ */
+class LazyMixinBody {
+
+    private static final Rule[]    NO_PARENTS = new Rule[0];
+
+    private final LessParser       parser;
+
+    private final String           content;
+
+    private final String           fileName;
+
+    private final int              line;
+
+    private final int              column;
+
+    private final URL              baseURL;
+
+    private final URL              relativeURL;
+
+    private final Rule[]           parents;
+
+    private final boolean          nestedSelectors;
+
+    /**
+     * Create an instance.
+     * 
+     * @param parser
+     *            the parser with the global mixins
+     * @param reader
+     *            the reader after the opening curly bracket, the block is skipped
+     * @param baseURL
+     *            the url of the current file
+     * @param relativeURL
+     *            the relative url of the current file for url rewriting
+     * @param ruleStack
+     *            the parent rules
+     */
+    LazyMixinBody( LessParser parser, LessLookAheadReader reader, URL baseURL, URL relativeURL, ArrayDeque<Rule> ruleStack ) {
+        this.parser = parser;
+        this.fileName = reader.getFileName();
+        this.line = reader.getLine();
+        this.column = reader.getColumn();
+        StringBuilder builder = new StringBuilder();
+        this.nestedSelectors = reader.skipBlock( builder );
+        this.content = builder.toString();
+        this.baseURL = baseURL;
+        this.relativeURL = relativeURL;
+        this.parents = ruleStack.isEmpty() ? NO_PARENTS : ruleStack.toArray( new Rule[ruleStack.size()] );
+    }
+
+    /**
+     * If the body has nested rules with selectors that can be used as mixin. The nested rules of a mixin are global
+     * mixins. Such a body can not be parsed lazy.
+     * 
+     * @return true, if the body must be parsed immediately
+     */
+    boolean hasNestedSelectors() {
+        return nestedSelectors;
+    }
+
+    /**
+     * Parse the content into the rule.
+     * 
+     * @param rule
+     *            the mixin declaration
+     * @param global
+     *            true, if the nested rules should be added to the global mixins
+     */
+    void parse( Rule rule, boolean global ) {
+        ArrayDeque<Rule> ruleStack = new ArrayDeque<>( Arrays.asList( parents ) );
+        parser.parseLazyBody( rule, new LessLookAheadReader( new StringReader( content ), fileName, line, column ), baseURL, relativeURL, ruleStack, global );
+    }
+}
@@ -26,14 +26,36 @@
  */
 package com.inet.lib.less;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringReader;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * The main class of JLessC library. Its contain all start points for converting LESS to CSS files.
  */
 public class Less {
 
+    /**
+     * The pool for the parallel parsing, formatting and batch compilations. It is created on first use.
+     */
+    private static ForkJoinPool pool;
+
     /**
      * Compile the less data from a string.
      * 
@@ -46,19 +68,360 @@ public class Less {
      * @return the resulting less data
      */
     public static String compile( URL baseURL, String lessData, boolean compress ) {
-        LessParser parser = new LessParser();
-        parser.parse( baseURL, new StringReader( lessData ) );
+        LessOptions options = new LessOptions();
+        options.setCompress( compress );
+        return compile( baseURL, lessData, options );
+    }
+
+    /**
+     * Compile the less data from a string.
+     * 
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param lessData
+     *            the input less data
+     * @param options
+     *            the compile options
+     * @return the resulting less data
+     */
+    public static String compile( URL baseURL, String lessData, LessOptions options ) {
+        return compile( baseURL, lessData, options, null, false, null );
+    }
+
+    /**
+     * Compile the less data from a string to gzip compressed CSS data. The CSS is compressed while it is written, the
+     * full CSS string is never created. The compression level is taken from the options.
+     * 
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param lessData
+     *            the input less data
+     * @param options
+     *            the compile options
+     * @return the compressed data and the sizes
+     */
+    public static DeflatedCss compileGzip( URL baseURL, String lessData, LessOptions options ) {
+        return compileDeflated( baseURL, lessData, options, null, true );
+    }
+
+    /**
+     * Compile the less data from a string and write the gzip compressed CSS data to a stream. The stream is not closed.
+     * For a channel use {@link java.nio.channels.Channels#newOutputStream}.
+     * 
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param lessData
+     *            the input less data
+     * @param options
+     *            the compile options
+     * @param out
+     *            the target for the compressed data
+     * @return the sizes, the data is null
+     */
+    public static DeflatedCss compileGzip( URL baseURL, String lessData, LessOptions options, OutputStream out ) {
+        return compileDeflated( baseURL, lessData, options, out, true );
+    }
+
+    /**
+     * Compile the less data from a string to deflate compressed CSS data in the zlib format. The CSS is compressed
+     * while it is written, the full CSS string is never created. The compression level is taken from the options.
+     * 
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param lessData
+     *            the input less data
+     * @param options
+     *            the compile options
+     * @return the compressed data and the sizes
+     */
+    public static DeflatedCss compileDeflate( URL baseURL, String lessData, LessOptions options ) {
+        return compileDeflated( baseURL, lessData, options, null, false );
+    }
+
+    /**
+     * Compile the less data from a string and write the deflate compressed CSS data in the zlib format to a stream.
+     * The stream is not closed.
+     * 
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param lessData
+     *            the input less data
+     * @param options
+     *            the compile options
+     * @param out
+     *            the target for the compressed data
+     * @return the sizes, the data is null
+     */
+    public static DeflatedCss compileDeflate( URL baseURL, String lessData, LessOptions options, OutputStream out ) {
+        return compileDeflated( baseURL, lessData, options, out, false );
+    }
+
+    /**
+     * Compile the less data from a string to compressed CSS data.
+     * 
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param lessData
+     *            the input less data
+     * @param options
+     *            the compile options
+     * @param out
+     *            the target for the compressed data or null for a byte array
+     * @param gzip
+     *            true, for the gzip format; false, for the zlib format
+     * @return the compressed result
+     */
+    private static DeflatedCss compileDeflated( URL baseURL, String lessData, LessOptions options, OutputStream out, boolean gzip ) {
+        ByteArrayOutputStream bytes = out == null ? new ByteArrayOutputStream() : null;
+        CountingOutputStream compressed = new CountingOutputStream( out == null ? bytes : out, false );
+        final int level = options.getDeflateLevel();
+        try {
+            DeflaterOutputStream deflater;
+            if( gzip ) {
+                deflater = new GZIPOutputStream( compressed ) {
+                    {
+                        def.setLevel( level );
+                    }
+                };
+            } else {
+                deflater = new DeflaterOutputStream( compressed ) {
+                    {
+                        def.setLevel( level );
+                    }
+                };
+            }
+            CountingOutputStream raw = new CountingOutputStream( deflater, true );
+            try( Writer writer = new OutputStreamWriter( raw, StandardCharsets.UTF_8 ) ) {
+                compile( baseURL, lessData, options, null, false, writer );
+            }
+            return new DeflatedCss( bytes == null ? null : bytes.toByteArray(), raw.getCount(), compressed.getCount() );
+        } catch( IOException ex ) {
+            throw new LessException( ex );
+        }
+    }
+
+    /**
+     * Compile the less data from a string asynchronously on the executor of the options. Canceling the future with
+     * interrupt stop the running compilation at the next check point of the parser or formatter. The timeout of the
+     * options is measured from the start of the compilation.
+     * 
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param lessData
+     *            the input less data
+     * @param options
+     *            the compile options
+     * @return the future of the resulting less data
+     */
+    public static Future<String> compileAsync( final URL baseURL, final String lessData, final LessOptions options ) {
+        final FutureTask<String> task = new FutureTask<>( new Callable<String>() {
+            @Override
+            public String call() {
+                return compile( baseURL, lessData, options, null, true, null );
+            }
+        } );
+        ExecutorService executor = options.getExecutor();
+        if( executor == null ) {
+            executor = getPool();
+        }
+        executor.execute( new Runnable() {
+            @Override
+            public void run() {
+                task.run();
+                if( task.isCancelled() ) {
+                    // clear the interrupt of cancel() that was not consumed, the thread of the pool will be reused
+                    Thread.interrupted();
+                }
+            }
+        } );
+        return task;
+    }
+
+    /**
+     * Compile many less files concurrently. Imported files are read only once for the whole batch. A failing file does
+     * not break the compilation of the other files.
+     * 
+     * @param sources
+     *            the less files
+     * @param options
+     *            the compile options, the executor of the options is used to run the compilations
+     * @return the results in the order of the sources
+     */
+    public static List<LessResult> compileAll( Collection<LessSource> sources, final LessOptions options ) {
+        final ImportCache importCache = new ImportCache();
+        List<Callable<LessResult>> tasks = new ArrayList<>( sources.size() );
+        for( final LessSource source : sources ) {
+            tasks.add( new Callable<LessResult>() {
+                @Override
+                public LessResult call() {
+                    try {
+                        return new LessResult( source, compile( source.getBaseURL(), source.getLessData(), options, importCache, false, null ), null );
+                    } catch( LessException ex ) {
+                        return new LessResult( source, null, ex );
+                    } catch( RuntimeException ex ) {
+                        return new LessResult( source, null, new LessException( ex ) );
+                    }
+                }
+            } );
+        }
+        ExecutorService executor = options.getExecutor();
+        if( executor == null ) {
+            executor = getPool();
+        }
+        try {
+            List<LessResult> results = new ArrayList<>( tasks.size() );
+            for( Future<LessResult> future : executor.invokeAll( tasks ) ) {
+                results.add( future.get() );
+            }
+            return results;
+        } catch( InterruptedException ex ) {
+            Thread.currentThread().interrupt();
+            throw new LessException( ex );
+        } catch( ExecutionException ex ) {
+            throw new LessException( ex.getCause() );
+        }
+    }
+
+    /**
+     * Compile the less data from a string.
+     * 
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param lessData
+     *            the input less data
+     * @param options
+     *            the compile options
+     * @param importCache
+     *            shared content of imported files or null
+     * @param interruptible
+     *            true, if an interrupt of the current thread should cancel the compilation
+     * @param writer
+     *            a writer that receive the CSS data or null
+     * @return the resulting less data or null if it was written to the writer
+     */
+    private static String compile( URL baseURL, String lessData, LessOptions options, ImportCache importCache, boolean interruptible, Writer writer ) {
+        CompileListener listener = options.getListener();
+        if( listener == null ) {
+            return doCompile( baseURL, lessData, options, importCache, interruptible, writer );
+        }
+        listener.compileStarted( baseURL );
+        long start = System.nanoTime();
+        Throwable error = null;
+        try {
+            return doCompile( baseURL, lessData, options, importCache, interruptible, writer );
+        } catch( RuntimeException | Error ex ) {
+            error = ex;
+            throw ex;
+        } finally {
+            listener.compileFinished( baseURL, System.nanoTime() - start, error );
+        }
+    }
+
+    /**
+     * Compile the less data without notifying the listener.
+     * 
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param lessData
+     *            the input less data
+     * @param options
+     *            the compile options
+     * @param importCache
+     *            shared content of imported files or null
+     * @param interruptible
+     *            true, if an interrupt of the current thread should cancel the compilation
+     * @param writer
+     *            a writer that receive the CSS data or null
+     * @return the resulting less data or null if it was written to the writer
+     */
+    private static String doCompile( URL baseURL, String lessData, LessOptions options, ImportCache importCache, boolean interruptible, Writer writer ) {
+        Cancellation cancellation = interruptible || options.getTimeout() > 0 ? new Cancellation( options.getTimeout() ) : null;
+        CompileStats stats = options.getStats() == null ? null : new CompileStats();
+        MixinProfile profile = options.getMixinProfile() == null ? null : new MixinProfile();
+        OutputAnalysis analysis = options.getOutputAnalysis() == null ? null : new OutputAnalysis();
+        LessParser parser = new LessParser( importCache, cancellation, stats, options.getListener() );
+        parser.setLazyMixins( options.isLazyMixins() );
+        long start = System.nanoTime();
+        if( options.isParallel() ) {
+            parser.parseParallel( baseURL, lessData, getPool() );
+        } else {
+            parser.parse( baseURL, new StringReader( lessData ) );
+        }
+        if( stats != null ) {
+            stats.addParseTime( System.nanoTime() - start );
+        }
 
         StringBuilder builder = new StringBuilder();
-        CssFormatter formatter = compress ? new CompressCssFormatter() :  new CssFormatter();
+        CssFormatter formatter = options.isCompress() ? new CompressCssFormatter() :  new CssFormatter();
+        formatter.setCancellation( cancellation );
+        formatter.setStats( stats );
+        formatter.setProfile( profile );
+        formatter.setOutputAnalysis( analysis );
+        SourceMapBuilder sourceMap = options.getSourceMap() == null ? null : new SourceMapBuilder( mainSource( baseURL ), baseURL, parser.getFileURLs() );
+        formatter.setSourceMap( sourceMap );
+        formatter.setOptimize( options.isOptimize() );
+        formatter.setMergeMedia( options.isMergeMedia() );
+        formatter.setWriter( writer );
+        formatter.setResourceCache( options.getResourceCache() == null ? new ResourceCache() : options.getResourceCache(), options.getDataUriMaxSize() );
+        formatter.setListener( options.getListener(), options.getMixinThreshold() * 1000000 );
+        start = System.nanoTime();
         parser.parseLazy( formatter );
+        if( stats != null ) {
+            stats.addLazyImportTime( System.nanoTime() - start );
+        }
         try {
-            formatter.format( parser, baseURL, builder );
+            if( options.isParallel() ) {
+                formatter.formatParallel( parser, baseURL, builder, getPool() );
+            } else {
+                formatter.format( parser, baseURL, builder );
+            }
         } catch( LessException ex ) {
             throw ex;
         } catch( Exception ex ) {
             throw new LessException( ex );
         }
-        return builder.toString();
+        if( stats != null ) {
+            options.getStats().add( stats );
+        }
+        if( profile != null ) {
+            options.getMixinProfile().add( profile );
+        }
+        if( analysis != null ) {
+            options.getOutputAnalysis().add( analysis );
+        }
+        if( sourceMap != null ) {
+            sourceMap.writeTo( options.getSourceMap() );
+        }
+        return writer == null ? builder.toString() : null;
+    }
+
+    /**
+     * Get the name of the main file for the source map.
+     * 
+     * @param baseURL
+     *            the baseURL of the compiled less data, can be null
+     * @return the last segment of the URL path or "input"
+     */
+    private static String mainSource( URL baseURL ) {
+        if( baseURL != null ) {
+            String path = baseURL.getPath();
+            String name = path.substring( path.lastIndexOf( '/' ) + 1 );
+            if( !name.isEmpty() ) {
+                return name;
+            }
+        }
+        return "input";
+    }
+
+    /**
+     * Get the pool for the parallel parsing, formatting and batch compilations.
+     * 
+     * @return the pool
+     */
+    private static synchronized ForkJoinPool getPool() {
+        if( pool == null ) {
+            pool = new ForkJoinPool();
+        }
+        return pool;
     }
 }
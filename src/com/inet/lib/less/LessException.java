@@ -29,7 +29,7 @@ package com.inet.lib.less;
 /**
  * A exception that occur if some can not parse or converted.
  */
-class LessException extends RuntimeException {
+public class LessException extends RuntimeException {
 
     private String msg;
 
@@ -54,6 +54,9 @@ class LessException extends RuntimeException {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public String getMessage() {
         return msg;
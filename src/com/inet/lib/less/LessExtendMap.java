@@ -72,6 +72,17 @@ class LessExtendMap {
         }
     }
 
+    /**
+     * Add all extends of another map that was executed after the extends of this map.
+     * 
+     * @param other
+     *            the other map
+     */
+    void addAll( LessExtendMap other ) {
+        all.addAll( other.all );
+        exact.addAll( other.exact );
+    }
+
     /**
      * Add to the given selectors all possible extends and return the resulting selectors.
      * @param selectors current selectors
@@ -41,11 +41,29 @@ class LessLookAheadReader extends LessObject implements Closeable {
 
     private int                 cachePos;
 
+    private int                 line, column;
+
     LessLookAheadReader( Reader reader, String fileName ) {
+        this( reader, fileName, 1, 0 );
+    }
+
+    /**
+     * Create a reader for a part of a file.
+     * 
+     * @param reader
+     *            the data
+     * @param fileName
+     *            the name of the file
+     * @param line
+     *            the line of the first character
+     * @param column
+     *            the column before the first character
+     */
+    LessLookAheadReader( Reader reader, String fileName, int line, int column ) {
         super( fileName );
         this.reader = reader;
-        line = 1;
-        column = 0;
+        this.line = line;
+        this.column = column;
     }
 
     int nextBlockMarker() {
@@ -237,6 +255,94 @@ class LessLookAheadReader extends LessObject implements Closeable {
         column--; // reverse of incLineColumn()
     }
 
+    /**
+     * Read the content of a block without parsing it. This is called after the opening curly bracket. Strings,
+     * comments and nested blocks are skipped.
+     * 
+     * @param builder
+     *            receives the content of the block including the closing curly bracket
+     * @return true, if a nested block has a selector with a dot or hash that can be used as mixin
+     */
+    boolean skipBlock( StringBuilder builder ) {
+        boolean nestedSelectors = false;
+        int headerStart = 0;
+        int depth = 1;
+        int parenthesis = 0;
+        char quote = 0;
+        for( ;; ) {
+            char ch = read();
+            builder.append( ch );
+            if( quote != 0 ) {
+                if( ch == '\\' ) {
+                    builder.append( read() );
+                } else if( ch == quote ) {
+                    quote = 0;
+                }
+                continue;
+            }
+            switch( ch ) {
+                case '"':
+                case '\'':
+                    quote = ch;
+                    break;
+                case '\\':
+                    builder.append( read() );
+                    break;
+                case '(':
+                    parenthesis++;
+                    break;
+                case ')':
+                    parenthesis--;
+                    break;
+                case '/':
+                    int length = builder.length();
+                    if( length > 1 && builder.charAt( length - 2 ) == '/' && parenthesis <= 0 ) {
+                        do {
+                            ch = read();
+                            builder.append( ch );
+                        } while( ch != '\n' );
+                    }
+                    break;
+                case '*':
+                    length = builder.length();
+                    if( length > 1 && builder.charAt( length - 2 ) == '/' ) {
+                        char last = 0;
+                        do {
+                            ch = read();
+                            builder.append( ch );
+                            if( ch == '/' && last == '*' ) {
+                                break;
+                            }
+                            last = ch;
+                        } while( true );
+                    }
+                    break;
+                case '{':
+                    depth++;
+                    length = builder.length();
+                    if( length < 2 || builder.charAt( length - 2 ) != '@' ) { // @{  --> a inline variable and not a block start
+                        for( int i = headerStart; i < length - 1; i++ ) {
+                            char c = builder.charAt( i );
+                            if( c == '.' || c == '#' ) {
+                                nestedSelectors = true;
+                            }
+                        }
+                        headerStart = length;
+                    }
+                    break;
+                case '}':
+                    if( --depth == 0 ) {
+                        return nestedSelectors;
+                    }
+                    //$FALL-THROUGH$
+                case ';':
+                    headerStart = builder.length();
+                    break;
+                default:
+            }
+        }
+    }
+
     /**
      * Skip all data until a newline occur or an EOF
      */
@@ -262,18 +368,22 @@ class LessLookAheadReader extends LessObject implements Closeable {
         return (char)ch;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
     int getLine() {
         return line;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
     int getColumn() {
         return column;
     }
 
-    String getFileName() {
-        return filename;
-    }
-
     @Override
     public void close() throws IOException {
         reader.close();
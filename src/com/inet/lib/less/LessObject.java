@@ -31,12 +31,14 @@ package com.inet.lib.less;
  */
 class LessObject {
 
-    String filename;
+    private final String fileName;
 
-    int    line, column;
+    private final int    line, column;
 
     LessObject( String filename ) {
-        this.filename = filename;
+        this.fileName = filename;
+        this.line = 0;
+        this.column = 0;
     }
 
     /**
@@ -46,20 +48,47 @@ class LessObject {
      *            another LessObject with parse position.
      */
     LessObject( LessObject obj ) {
-        this.filename = obj.filename;
-        this.line = obj.line;
-        this.column = obj.column;
+        this.fileName = obj.getFileName();
+        this.line = obj.getLine();
+        this.column = obj.getColumn();
+    }
+
+    /**
+     * Get the file name of the parse position.
+     * 
+     * @return the file name or null
+     */
+    String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Get the line number of the parse position.
+     * 
+     * @return the line
+     */
+    int getLine() {
+        return line;
+    }
+
+    /**
+     * Get the column of the parse position.
+     * 
+     * @return the column
+     */
+    int getColumn() {
+        return column;
     }
 
     LessException createException( String msg ) {
         LessException lessEx = new LessException( msg );
-        lessEx.addPosition( filename, line, column );
+        lessEx.addPosition( getFileName(), getLine(), getColumn() );
         return lessEx;
     }
 
     LessException createException( Throwable ex ) {
         LessException lessEx = ex.getClass() == LessException.class ? (LessException)ex : new LessException( ex );
-        lessEx.addPosition( filename, line, column );
+        lessEx.addPosition( getFileName(), getLine(), getColumn() );
         return lessEx;
     }
 }
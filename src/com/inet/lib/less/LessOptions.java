@@ -0,0 +1,407 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
+
+/**
+ * The options for compiling LESS data to CSS.
+ */
+public class LessOptions {
+
+    /**
+     * The default size from which a resource of the function data-uri is not embedded.
+     */
+    static final int        DATA_URI_MAX_SIZE = 32 * 1024;
+
+    private boolean         compress;
+
+    private boolean         parallel;
+
+    private ExecutorService executor;
+
+    private long            timeout;
+
+    private CompileStats    stats;
+
+    private CompileListener listener;
+
+    private MixinProfile    mixinProfile;
+
+    private OutputAnalysis  outputAnalysis;
+
+    private SourceMap       sourceMap;
+
+    private boolean         optimize;
+
+    private boolean         mergeMedia;
+
+    private long            mixinThreshold = 10;
+
+    private int             deflateLevel   = Deflater.DEFAULT_COMPRESSION;
+
+    private ResourceCache   resourceCache;
+
+    private int             dataUriMaxSize = DATA_URI_MAX_SIZE;
+
+    private boolean         lazyMixins;
+
+    /**
+     * Create an instance with default options.
+     */
+    public LessOptions() {
+    }
+
+    /**
+     * If the CSS data should be compressed without any extra formating characters.
+     * 
+     * @return true, if compressed
+     */
+    public boolean isCompress() {
+        return compress;
+    }
+
+    /**
+     * Set if the CSS data should be compressed without any extra formating characters. Default is false.
+     * 
+     * @param compress
+     *            true, if compressed
+     */
+    public void setCompress( boolean compress ) {
+        this.compress = compress;
+    }
+
+    /**
+     * If the top level rules are formatted in parallel.
+     * 
+     * @return true, if parallel
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Set if the top level rules should be formatted in parallel on multiple cores. This is only useful for large
+     * stylesheets. Large less data without top level imports are also parsed in parallel. The output is the same like
+     * in the sequential mode. Default is false.
+     * 
+     * @param parallel
+     *            true, if parallel
+     */
+    public void setParallel( boolean parallel ) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * The executor for batch and asynchronous compilations.
+     * 
+     * @return the executor or null if the default pool is used
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Set the executor for batch compilations with {@link Less#compileAll(java.util.Collection, LessOptions)} and for
+     * {@link Less#compileAsync(java.net.URL, String, LessOptions)}. If null
+     * then a shared ForkJoinPool with one thread per core is used. Default is null.
+     * 
+     * @param executor
+     *            the executor or null
+     */
+    public void setExecutor( ExecutorService executor ) {
+        this.executor = executor;
+    }
+
+    /**
+     * The maximum time of a single compilation.
+     * 
+     * @return the timeout in milliseconds or 0 if there is no timeout
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Set the maximum time of a single compilation. If the timeout is exceeded then the compilation throws a
+     * LessException. Default is 0.
+     * 
+     * @param timeout
+     *            the timeout in milliseconds or 0 for no timeout
+     */
+    public void setTimeout( long timeout ) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Get the statistics that are collected by compilations with this options.
+     * 
+     * @return the statistics or null if disabled
+     */
+    public CompileStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Set an object that collects statistics like timings and counters of all compilations with this options. The
+     * values are accumulated if the options are used multiple times. Default is null which disables the collecting.
+     * 
+     * @param stats
+     *            the statistics or null
+     */
+    public void setStats( CompileStats stats ) {
+        this.stats = stats;
+    }
+
+    /**
+     * Get the listener that is notified about the compilations with this options.
+     * 
+     * @return the listener or null
+     */
+    public CompileListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Set a listener that is notified about compilations, imported files, loaded data-uri resources and slow mixin
+     * calls. It can be used to emit monitoring events, for example for the Java Flight Recorder. Without a listener
+     * nothing is measured. Default is null.
+     * 
+     * @param listener
+     *            the listener or null
+     */
+    public void setListener( CompileListener listener ) {
+        this.listener = listener;
+    }
+
+    /**
+     * Get the minimum duration of a mixin call that is reported to the listener.
+     * 
+     * @return the threshold in milliseconds
+     */
+    public long getMixinThreshold() {
+        return mixinThreshold;
+    }
+
+    /**
+     * Set the minimum duration of a mixin call that is reported to the listener. Default is 10 milliseconds.
+     * 
+     * @param mixinThreshold
+     *            the threshold in milliseconds, 0 reports all mixin calls
+     */
+    public void setMixinThreshold( long mixinThreshold ) {
+        this.mixinThreshold = mixinThreshold;
+    }
+
+    /**
+     * Get the profile that collects the costs of the mixin calls.
+     * 
+     * @return the profile or null if disabled
+     */
+    public MixinProfile getMixinProfile() {
+        return mixinProfile;
+    }
+
+    /**
+     * Set a profile that collects the count, guard rejections, output size and time of all mixin calls per mixin
+     * definition and per call site. The values are accumulated if the options are used multiple times. Profiling slows
+     * down the compiling. Default is null which disables the profiling.
+     * 
+     * @param mixinProfile
+     *            the profile or null
+     */
+    public void setMixinProfile( MixinProfile mixinProfile ) {
+        this.mixinProfile = mixinProfile;
+    }
+
+    /**
+     * Get the analysis that attributes the CSS output size to the source.
+     * 
+     * @return the analysis or null if disabled
+     */
+    public OutputAnalysis getOutputAnalysis() {
+        return outputAnalysis;
+    }
+
+    /**
+     * Set an analysis that attributes the size of the written properties to the source rules, mixin calls and files and
+     * that finds duplicated declaration blocks. The values are accumulated if the options are used multiple times.
+     * Default is null which disables the analysis.
+     * 
+     * @param outputAnalysis
+     *            the analysis or null
+     */
+    public void setOutputAnalysis( OutputAnalysis outputAnalysis ) {
+        this.outputAnalysis = outputAnalysis;
+    }
+
+    /**
+     * Get the source map that is filled by the compilation.
+     * 
+     * @return the source map or null if disabled
+     */
+    public SourceMap getSourceMap() {
+        return sourceMap;
+    }
+
+    /**
+     * Set a source map that is filled with the mappings of the CSS output to the less sources. The content is replaced
+     * by every compilation. Default is null which disables the source map generation.
+     * 
+     * @param sourceMap
+     *            the source map or null
+     */
+    public void setSourceMap( SourceMap sourceMap ) {
+        this.sourceMap = sourceMap;
+    }
+
+    /**
+     * If the CSS output is optimized structurally.
+     * 
+     * @return true, if optimized
+     */
+    public boolean isOptimize() {
+        return optimize;
+    }
+
+    /**
+     * Set if the CSS output should be optimized structurally. Properties that are overridden later in the same rule
+     * are dropped, rules with the same selectors are merged and rules with identical declarations are merged into one
+     * selector list if this does not change the cascade. Default is false.
+     * 
+     * @param optimize
+     *            true, if optimize
+     */
+    public void setOptimize( boolean optimize ) {
+        this.optimize = optimize;
+    }
+
+    /**
+     * If the rules of identical media queries are grouped.
+     * 
+     * @return true, if grouped
+     */
+    public boolean isMergeMedia() {
+        return mergeMedia;
+    }
+
+    /**
+     * Set if the rules of identical media queries should be grouped into the first media block with the same
+     * condition. Nested media queries produce a separate block for every occurrence. A block is only moved if no rule
+     * between sets a property of the same family, so that the cascade is not changed. Default is false.
+     * 
+     * @param mergeMedia
+     *            true, if grouped
+     */
+    public void setMergeMedia( boolean mergeMedia ) {
+        this.mergeMedia = mergeMedia;
+    }
+
+    /**
+     * Get the compression level for the gzip and deflate compilation.
+     * 
+     * @return the level
+     */
+    public int getDeflateLevel() {
+        return deflateLevel;
+    }
+
+    /**
+     * Set the compression level for the gzip and deflate compilation. Valid values are 0-9 and -1. Default is
+     * Deflater.DEFAULT_COMPRESSION.
+     * 
+     * @param deflateLevel
+     *            the level
+     * @see Deflater#setLevel(int)
+     */
+    public void setDeflateLevel( int deflateLevel ) {
+        this.deflateLevel = deflateLevel;
+    }
+
+    /**
+     * Get the cache for the resources of the function data-uri.
+     * 
+     * @return the cache or null
+     */
+    public ResourceCache getResourceCache() {
+        return resourceCache;
+    }
+
+    /**
+     * Set a cache for the resources of the function data-uri that is shared between compilations. Every resource is
+     * read and encoded only once until a local file is modified. Default is null, then every compilation use its own
+     * cache.
+     * 
+     * @param resourceCache
+     *            the cache or null
+     */
+    public void setResourceCache( ResourceCache resourceCache ) {
+        this.resourceCache = resourceCache;
+    }
+
+    /**
+     * Get the size from which a resource of the function data-uri is not embedded.
+     * 
+     * @return the size in bytes
+     */
+    public int getDataUriMaxSize() {
+        return dataUriMaxSize;
+    }
+
+    /**
+     * Set the size from which a resource of the function data-uri is not embedded. Larger resources are written as
+     * normal url. Default is 32 KB.
+     * 
+     * @param dataUriMaxSize
+     *            the size in bytes
+     */
+    public void setDataUriMaxSize( int dataUriMaxSize ) {
+        this.dataUriMaxSize = dataUriMaxSize;
+    }
+
+    /**
+     * If the bodies of mixins with parameters are parsed on first use.
+     * 
+     * @return true, if lazy
+     */
+    public boolean isLazyMixins() {
+        return lazyMixins;
+    }
+
+    /**
+     * Set if the bodies of mixins with parameters should be parsed on first use. The parser skips the body and records
+     * only its source. This reduces the parse time and memory for large mixin libraries of which only a few mixins are
+     * used. Syntax errors in mixins that are never used are not reported. Default is false.
+     * 
+     * @param lazyMixins
+     *            true, if lazy
+     */
+    public void setLazyMixins( boolean lazyMixins ) {
+        this.lazyMixins = lazyMixins;
+    }
+}
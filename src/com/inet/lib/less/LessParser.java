@@ -26,20 +26,61 @@
  */
 package com.inet.lib.less;
 
+import java.io.FilterReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * The parser of the less stream.
  */
 class LessParser implements FormattableContainer {
 
+    /**
+     * The minimum size of a chunk of less data that is parsed on its own core.
+     */
+    static final int                    PARALLEL_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * A chunk of top level statements of a large file.
+     */
+    private static class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final LessParser parser;
+
+        private RuntimeException exception;
+
+        ParseTask( LessParser parser ) {
+            this.parser = parser;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void compute() {
+            try {
+                parser.parse();
+            } catch( RuntimeException ex ) {
+                // will be thrown after parsing in the order of the chunks
+                exception = ex;
+            }
+        }
+    }
+
     private URL                         baseURL;
 
     private URL                         relativeURL;
@@ -54,6 +95,12 @@ class LessParser implements FormattableContainer {
 
     private HashMultimap<String, Rule>  mixins        = new HashMultimap<>();
 
+    /**
+     * The mixins that are searched from mixin calls. If this parser parse a chunk of a large file then this are the
+     * mixins of the main parser which are complete after all chunks are parsed.
+     */
+    private HashMultimap<String, Rule>  globalMixins  = mixins;
+
     /**
      * A StringBuilder which can reused inside one method. Do not call another method that also use it.
      */
@@ -63,6 +110,121 @@ class LessParser implements FormattableContainer {
 
     private List<LazyImport>            lazyImports;
 
+    /**
+     * The URLs of all imported less files for the default import option "once".
+     */
+    private final HashSet<String>       importedFiles = new HashSet<>();
+
+    /**
+     * The files that are imported only with the option "reference" until now. A later import without this option
+     * writes the rules of the file.
+     */
+    private final HashMap<String, ReferenceImport> referencedFiles = new HashMap<>();
+
+    /**
+     * The resolved URLs of the imported less files. The key is the file name instance of the reader, which is
+     * referenced from all parsed objects of the file.
+     */
+    private final IdentityHashMap<String, URL> fileURLs = new IdentityHashMap<>();
+
+    /**
+     * If the current file is parsed for an import with the option "reference".
+     */
+    private boolean                     inReference;
+
+    private final SymbolTable           symbols       = new SymbolTable();
+
+    private final ImportCache           importCache;
+
+    private final Cancellation          cancellation;
+
+    private final CompileStats          stats;
+
+    private final CompileListener       listener;
+
+    private boolean                     lazyMixins;
+
+    /**
+     * True, if this parser parse the body of a lazy mixin. Nested rules are not added to the global mixins.
+     */
+    private boolean                     lazyBody;
+
+    /**
+     * Create a parser that read imported files directly.
+     */
+    LessParser() {
+        this( null, null, null, null );
+    }
+
+    /**
+     * Create a parser that read imported files from a shared cache.
+     * 
+     * @param importCache
+     *            the cache or null
+     * @param cancellation
+     *            the cancellation of the compilation or null
+     * @param stats
+     *            the statistics of the compilation or null
+     * @param listener
+     *            the listener of the compilation or null
+     */
+    LessParser( ImportCache importCache, Cancellation cancellation, CompileStats stats, CompileListener listener ) {
+        this.importCache = importCache;
+        this.cancellation = cancellation;
+        this.stats = stats;
+        this.listener = listener;
+    }
+
+    /**
+     * Set if the bodies of mixins with parameters should only be parsed on first use.
+     * 
+     * @param lazyMixins
+     *            true, if lazy
+     */
+    void setLazyMixins( boolean lazyMixins ) {
+        this.lazyMixins = lazyMixins;
+    }
+
+    /**
+     * Parse the skipped body of a mixin declaration. This is called from the formatter on the first use of the mixin
+     * and can run in parallel for different mixins. A separate parser is used that share only the global mixins. A
+     * body with nested selectors is parsed immediately after skipping.
+     * 
+     * @param rule
+     *            the mixin declaration
+     * @param reader
+     *            the reader for the content of the body
+     * @param baseURL
+     *            the url of the file with the declaration
+     * @param relativeURL
+     *            the relative url of the file for url rewriting
+     * @param ruleStack
+     *            the parent rules of the declaration
+     * @param global
+     *            true, if nested rules should be added to the global mixins; only possible while parsing
+     */
+    void parseLazyBody( Rule rule, LessLookAheadReader reader, URL baseURL, URL relativeURL, ArrayDeque<Rule> ruleStack, boolean global ) {
+        LessParser parser = new LessParser( importCache, cancellation, stats, listener );
+        parser.mixins = mixins;
+        parser.globalMixins = globalMixins;
+        parser.lazyMixins = lazyMixins;
+        parser.lazyBody = !global;
+        parser.reader = reader;
+        parser.baseURL = baseURL;
+        parser.relativeURL = relativeURL;
+        parser.ruleStack = ruleStack;
+        try {
+            parser.parseRule( rule );
+        } catch( LessException ex ) {
+            ex.addPosition( reader.getFileName(), reader.getLine(), reader.getColumn() );
+            throw ex;
+        } catch( RuntimeException ex ) {
+            LessException lessEx = new LessException( ex );
+            lessEx.addPosition( reader.getFileName(), reader.getLine(), reader.getColumn() );
+            throw lessEx;
+        }
+    }
+
     /**
      * Get the parsed rules
      *
@@ -72,7 +234,16 @@ class LessParser implements FormattableContainer {
         return rules;
     }
 
-    public HashMap<String, Expression> getVariables() {
+    /**
+     * Get the resolved URLs of the imported less files.
+     *
+     * @return the URLs by the file name instance of the parsed objects
+     */
+    IdentityHashMap<String, URL> getFileURLs() {
+        return fileURLs;
+    }
+
+    HashMap<String, Expression> getVariables() {
         return variables;
     }
 
@@ -87,6 +258,180 @@ class LessParser implements FormattableContainer {
         parse();
     }
 
+    /**
+     * Parse large less data on multiple cores. The data are split at the end of top level statements into chunks
+     * which are parsed from separate parsers. The rules, variables and mixins of the chunks are added in the order of
+     * the chunks. The result is the same like from the sequential parsing. Small data and data with a top level import
+     * are parsed sequential because the import option "once" depends on the order of the imports.
+     * 
+     * @param baseURL
+     *            the baseURL of the less data
+     * @param lessData
+     *            the less data
+     * @param pool
+     *            the pool for the chunks
+     */
+    void parseParallel( URL baseURL, String lessData, ForkJoinPool pool ) {
+        parseParallel( baseURL, lessData, pool, PARALLEL_CHUNK_SIZE );
+    }
+
+    /**
+     * Parse large less data on multiple cores.
+     * 
+     * @param baseURL
+     *            the baseURL of the less data
+     * @param lessData
+     *            the less data
+     * @param pool
+     *            the pool for the chunks
+     * @param chunkSize
+     *            the minimum size of a chunk
+     */
+    void parseParallel( URL baseURL, String lessData, ForkJoinPool pool, int chunkSize ) {
+        int count = Math.min( pool.getParallelism() * 2, lessData.length() / chunkSize );
+        int[] starts = count < 2 ? null : splitTopLevel( lessData, count );
+        if( starts == null ) {
+            parse( baseURL, new StringReader( lessData ) );
+            return;
+        }
+        this.baseURL = baseURL;
+        try {
+            this.relativeURL = new URL( "file", null, "" );
+        } catch( Exception th ) {
+            throw new LessException( th ); //should never occur
+        }
+
+        List<ParseTask> tasks = new ArrayList<>();
+        int line = 1;
+        int lineStart = 0;
+        for( int i = 0, start = 0; i < starts.length - 1; i++ ) {
+            for( ; start < starts[i]; start++ ) {
+                if( lessData.charAt( start ) == '\n' ) {
+                    line++;
+                    lineStart = start + 1;
+                }
+            }
+            LessParser parser = new LessParser( importCache, cancellation, stats, listener );
+            parser.globalMixins = mixins;
+            parser.lazyMixins = lazyMixins;
+            parser.baseURL = baseURL;
+            parser.relativeURL = relativeURL;
+            parser.reader = new LessLookAheadReader( new StringReader( lessData.substring( start, starts[i + 1] ) ), null, line, start - lineStart );
+            tasks.add( new ParseTask( parser ) );
+        }
+        for( ParseTask task : tasks ) {
+            pool.execute( task );
+        }
+        for( ParseTask task : tasks ) {
+            task.join();
+        }
+
+        for( ParseTask task : tasks ) {
+            if( task.exception != null ) {
+                throw task.exception;
+            }
+            LessParser parser = task.parser;
+            rules.addAll( parser.rules );
+            variables.putAll( parser.variables );
+            mixins.addAll( parser.mixins );
+        }
+        rulesIdx = rules.size();
+    }
+
+    /**
+     * Search the start positions of chunks with top level statements. Strings, comments, parenthesis and inline
+     * variables are skipped like in the parser.
+     * 
+     * @param data
+     *            the less data
+     * @param count
+     *            the count of chunks with nearly equal size
+     * @return the start positions and the length of the data as last value or null if the data can not be split
+     */
+    private static int[] splitTopLevel( String data, int count ) {
+        int[] starts = new int[count + 1];
+        int idx = 1;
+        int length = data.length();
+        int depth = 0;
+        int parenthesis = 0;
+        for( int i = 0; i < length; i++ ) {
+            char ch = data.charAt( i );
+            switch( ch ) {
+                case '"':
+                case '\'':
+                    for( i++; i < length && data.charAt( i ) != ch; i++ ) {
+                        if( data.charAt( i ) == '\\' ) {
+                            i++;
+                        }
+                    }
+                    if( i >= length ) {
+                        return null;
+                    }
+                    break;
+                case '\\':
+                    i++;
+                    break;
+                case '/':
+                    if( i + 1 < length ) {
+                        if( data.charAt( i + 1 ) == '/' && parenthesis == 0 ) {
+                            i = data.indexOf( '\n', i );
+                            if( i < 0 ) {
+                                i = length;
+                            }
+                        } else if( data.charAt( i + 1 ) == '*' ) {
+                            i = data.indexOf( "*/", i + 2 );
+                            if( i < 0 ) {
+                                return null;
+                            }
+                            i++;
+                        }
+                    }
+                    break;
+                case '@':
+                    if( i + 1 < length && data.charAt( i + 1 ) == '{' ) { // @{  --> a inline variable and not a block start
+                        i = data.indexOf( '}', i );
+                        if( i < 0 ) {
+                            return null;
+                        }
+                    } else if( depth == 0 && data.startsWith( "@import", i ) ) {
+                        return null;
+                    }
+                    break;
+                case '(':
+                    parenthesis++;
+                    break;
+                case ')':
+                    parenthesis--;
+                    break;
+                case '{':
+                    if( parenthesis == 0 ) {
+                        depth++;
+                    }
+                    break;
+                case '}':
+                    if( parenthesis != 0 ) {
+                        break;
+                    }
+                    if( --depth < 0 ) {
+                        return null;
+                    }
+                    //$FALL-THROUGH$
+                case ';':
+                    if( depth == 0 && parenthesis == 0 && idx < count && i + 1 >= (long)length * idx / count ) {
+                        starts[idx++] = i + 1;
+                    }
+                    break;
+                default:
+            }
+        }
+        if( idx < 2 ) {
+            return null;
+        }
+        starts = Arrays.copyOf( starts, idx + 1 );
+        starts[idx] = length;
+        return starts;
+    }
+
     void parseLazy( CssFormatter formatter ) {
         if( lazyImports != null ) {
             HashMap<String, Expression> vars = variables;
@@ -108,6 +453,9 @@ class LessParser implements FormattableContainer {
         try {
 
             for( ;; ) {
+                if( cancellation != null ) {
+                    cancellation.check();
+                }
                 int ch = reader.nextBlockMarker();
                 switch( ch ) {
                     case -1:
@@ -177,7 +525,7 @@ class LessParser implements FormattableContainer {
                         back( ch );
                     }
                     throwUnrecognizedInputIfAny( builder, ch );
-                    variable( currentRule.getVariables(), currentRule );
+                    variable( currentRule );
                     return;
                 case '/':
                     if( !comment( isWhitespace( builder ) ? currentRule : null ) ) {
@@ -206,7 +554,7 @@ class LessParser implements FormattableContainer {
                         if( selector.contains( ":extend(" ) ) {
                             currentRule.add( new LessExtend( reader, selector, ruleStack ) );
                         } else {
-                            Mixin mixin = new Mixin( reader, selector, params, mixins );
+                            Mixin mixin = new Mixin( reader, selector, params, globalMixins );
                             currentRule.add( mixin );
                         }
                     }
@@ -249,9 +597,11 @@ class LessParser implements FormattableContainer {
                     currentRule.add( rule );
                     expr = null;
                     guard = null;
-                    String[] selectors = rule.getSelectors();
-                    for( String sel : selectors ) {
-                        mixins.add( sel.trim(), rule );
+                    if( !lazyBody ) {
+                        String[] selectors = rule.getSelectors();
+                        for( String sel : selectors ) {
+                            mixins.add( sel, rule );
+                        }
                     }
                     return;
                 case '/':
@@ -333,7 +683,7 @@ class LessParser implements FormattableContainer {
         }
     }
 
-    private void variable( HashMap<String, Expression> variables, FormattableContainer currentRule ) {
+    private void variable( FormattableContainer currentRule ) {
         StringBuilder builder = cachesBuilder;
         builder.append( '@' );
         char ch;
@@ -369,16 +719,69 @@ class LessParser implements FormattableContainer {
                 throw createException( "Unrecognized input: '" + ch + "'" );
             }
         }
-        variables.put( name, value );
+        currentRule.addVariable( name, value );
     }
 
-    private void importFile( FormattableContainer currentRule, final String name ) {
+    /**
+     * Import a file. The name can start with import options in parenthesis. Supported options are reference, inline,
+     * less, css, once, multiple and optional. Without the option "multiple" every less file is imported only once.
+     * 
+     * @param currentRule
+     *            the container of the import
+     * @param name
+     *            the import options and filename
+     */
+    private void importFile( FormattableContainer currentRule, String name ) {
         if( currentRule != this ) {
             //import is inside of a mixin and will be process if the mixin will be process
             currentRule.add( new CssAtRule( reader, "@import " + name + ';') );
             return;
         }
-        Object[] old = { reader, baseURL, relativeURL }; //store on the heap to reduce the stack size
+        String options = null;
+        boolean reference = inReference;
+        boolean inline = false;
+        boolean less = false;
+        boolean css = false;
+        boolean multiple = false;
+        boolean optional = false;
+        if( name.startsWith( "(" ) ) {
+            int idx = name.indexOf( ')' );
+            if( idx < 0 ) {
+                throw createException( "Unrecognized input: '" + name + "'" );
+            }
+            options = name.substring( 1, idx );
+            name = name.substring( idx + 1 ).trim();
+            for( String option : options.split( "," ) ) {
+                switch( option.trim() ) {
+                    case "reference":
+                        reference = true;
+                        break;
+                    case "inline":
+                        inline = true;
+                        break;
+                    case "less":
+                        less = true;
+                        break;
+                    case "css":
+                        css = true;
+                        break;
+                    case "once":
+                        multiple = false;
+                        break;
+                    case "multiple":
+                        multiple = true;
+                        break;
+                    case "optional":
+                        optional = true;
+                        break;
+                    case "":
+                        break;
+                    default:
+                        throw createException( "Unknown import option: '" + option.trim() + "'" );
+                }
+            }
+        }
+        Object[] old = { reader, baseURL, relativeURL, inReference }; //store on the heap to reduce the stack size
         try {
             String filename = name;
             if( filename.startsWith( "url(" ) && filename.endsWith( ")" ) ) {
@@ -392,6 +795,9 @@ class LessParser implements FormattableContainer {
                 HashMap<String, Expression> importVariables = new DefaultedHashMap<>( variables );
                 variables = new DefaultedHashMap<>( importVariables );
                 Formattable lastRuleBefore = rules.size() == 0 ? null : rules.get( rules.size() - 1 );
+                if( options != null ) {
+                    filename = '(' + options + ") " + filename;
+                }
                 LazyImport lazy = new LazyImport( reader, baseURL, filename, importVariables, lastRuleBefore );
                 if( lazyImports == null ) {
                     lazyImports = new ArrayList<>();
@@ -399,26 +805,89 @@ class LessParser implements FormattableContainer {
                 lazyImports.add( lazy );
                 return;
             }
-            if( filename.endsWith( "css" ) ) {
+            if( css || (!less && !inline && filename.endsWith( "css" )) ) {
                 // filenames ends with "css" will not be inline else a CSS @import directive is written
                 currentRule.add( new CssAtRule( reader, "@import " + name + ';') );
                 return;
             }
             baseURL = baseURL == null ? new URL( filename ) : new URL( baseURL, filename );
-            if( baseURL.getPath().endsWith( "css" ) ) {
+            if( !less && !inline && baseURL.getPath().endsWith( "css" ) ) {
                 // URL path ends with "css" will not be inline else a CSS @import directive is written
                 currentRule.add( new CssAtRule( reader, "@import " + name + ';') );
                 return;
             }
-            if( "file".equals( baseURL.getProtocol() ) && filename.lastIndexOf( '.' ) <= filename.lastIndexOf( '/' ) ) {
+            if( !inline && "file".equals( baseURL.getProtocol() ) && filename.lastIndexOf( '.' ) <= filename.lastIndexOf( '/' ) ) {
                 filename += ".less";
                 baseURL = (URL)old[1];
                 baseURL = baseURL == null ? new URL( filename ) : new URL( baseURL, filename );
             }
+            String key = baseURL.toString();
+            if( !inline && !multiple ) {
+                // every file is imported only once
+                if( importedFiles.contains( key ) || (reference && referencedFiles.containsKey( key )) ) {
+                    return;
+                }
+                if( !reference ) {
+                    importedFiles.add( key );
+                    ReferenceImport referenceImport = referencedFiles.remove( key );
+                    if( referenceImport != null ) {
+                        // the file was parsed already, only its rules must be written now
+                        release( referenceImport );
+                        return;
+                    }
+                }
+            }
             relativeURL = new URL( relativeURL, filename );
-            reader = new LessLookAheadReader( new InputStreamReader( baseURL.openStream(), StandardCharsets.UTF_8 ), filename );
-            parse();
-            reader.close();
+            long start = listener == null ? 0 : System.nanoTime();
+            Reader input;
+            try {
+                input = importCache == null ? new InputStreamReader( baseURL.openStream(), StandardCharsets.UTF_8 ) : importCache.open( baseURL );
+            } catch( IOException ex ) {
+                if( optional ) {
+                    return;
+                }
+                throw ex;
+            }
+            if( stats != null ) {
+                input = stats.importLoaded( input );
+            }
+            CountingReader counter = null;
+            if( listener != null ) {
+                input = counter = new CountingReader( input );
+            }
+            if( inline ) {
+                StringBuilder content = new StringBuilder();
+                char[] buffer = new char[8192];
+                int count;
+                while( (count = input.read( buffer )) > 0 ) {
+                    content.append( buffer, 0, count );
+                }
+                input.close();
+                if( !reference ) {
+                    add( new InlineImport( content.toString() ) );
+                }
+            } else {
+                int from = rulesIdx;
+                filename = new String( filename ); // an own instance for every imported file
+                fileURLs.put( filename, baseURL );
+                reader = new LessLookAheadReader( input, filename );
+                inReference = reference;
+                parse();
+                reader.close();
+                if( reference ) {
+                    List<Formattable> imported = rules.subList( from, rulesIdx );
+                    ReferenceImport referenceImport = new ReferenceImport( key, new ArrayList<>( imported ) );
+                    imported.clear();
+                    rulesIdx = from;
+                    add( referenceImport );
+                    if( !multiple ) {
+                        referencedFiles.put( key, referenceImport );
+                    }
+                }
+            }
+            if( listener != null ) {
+                listener.importLoaded( baseURL, counter.count, System.nanoTime() - start );
+            }
         } catch( LessException ex ) {
             throw ex;
         } catch( Exception ex ) {
@@ -427,18 +896,52 @@ class LessParser implements FormattableContainer {
             reader = (LessLookAheadReader)old[0];
             baseURL = (URL)old[1];
             relativeURL = (URL)old[2];
+            inReference = (Boolean)old[3];
+        }
+    }
+
+    /**
+     * Write the rules of a file that was imported with the option "reference" at the current position. Files that
+     * were imported from this file are also written.
+     * 
+     * @param referenceImport
+     *            the previous import of the file
+     */
+    private void release( ReferenceImport referenceImport ) {
+        for( Formattable rule : referenceImport.release() ) {
+            if( rule.getClass() == ReferenceImport.class ) {
+                ReferenceImport nested = (ReferenceImport)rule;
+                if( referencedFiles.remove( nested.getKey() ) != null ) {
+                    importedFiles.add( nested.getKey() );
+                }
+                release( nested );
+            } else {
+                add( rule );
+            }
         }
     }
 
     private Rule rule( String selector, Operation params, Expression guard ) {
-        Rule rule = new Rule(reader, selector, params, guard );
-        parseRule(rule);
+        Rule rule = new Rule( reader, splitSelectors( selector ), params, guard );
+        if( params != null && lazyMixins ) {
+            LazyMixinBody body = new LazyMixinBody( this, reader, baseURL, relativeURL, ruleStack );
+            if( body.hasNestedSelectors() ) {
+                body.parse( rule, true );
+            } else {
+                rule.setLazyBody( body );
+            }
+        } else {
+            parseRule( rule );
+        }
         return rule;
     }
 
     private void parseRule( Rule rule ) {
         ruleStack.add( rule );
         for( ;; ) {
+            if( cancellation != null ) {
+                cancellation.check();
+            }
             int ch = reader.nextBlockMarker();
             switch( ch ) {
                 case -1:
@@ -451,6 +954,7 @@ class LessParser implements FormattableContainer {
                     break;
                 case '}':
                     parseSemicolon( rule );
+                    rule.complete();
                     ruleStack.removeLast();
                     return;
                 default:
@@ -489,7 +993,7 @@ class LessParser implements FormattableContainer {
                     rule.add( new RuleProperty( name, value ) );
                     break;
                 case ';':
-                    rule.add( new Mixin( trim( builder ), expr, mixins ) );
+                    rule.add( new Mixin( trim( builder ), expr, globalMixins ) );
                     expr = null;
                     break;
                 case '}':
@@ -513,7 +1017,7 @@ class LessParser implements FormattableContainer {
                     break;
                 case '@':
                     throwUnrecognizedInputIfAny( builder, ch );
-                    variable( rule.getVariables(), rule );
+                    variable( rule );
                     break;
                 default:
                     builder.append( ch );
@@ -946,12 +1450,62 @@ class LessParser implements FormattableContainer {
      * @return a trim string
      */
     private String trim( StringBuilder builder ) {
-        //TODO can be optimize
-        String str = builder.toString().trim();
+        String str = trim( builder, 0, builder.length() );
         builder.setLength( 0 );
         return str;
     }
 
+    /**
+     * Get a trim string from a range of characters. Equal strings are shared via the symbol table of this parser.
+     *
+     * @param chars
+     *            the characters
+     * @param start
+     *            the start index, inclusive
+     * @param end
+     *            the end index, exclusive
+     * @return a trim string
+     */
+    private String trim( CharSequence chars, int start, int end ) {
+        while( start < end && chars.charAt( start ) <= ' ' ) {
+            start++;
+        }
+        while( start < end && chars.charAt( end - 1 ) <= ' ' ) {
+            end--;
+        }
+        return symbols.intern( chars, start, end );
+    }
+
+    /**
+     * Split a comma separated list of selectors in single trim selectors.
+     *
+     * @param selector
+     *            the selector list
+     * @return the selectors
+     */
+    private String[] splitSelectors( String selector ) {
+        int length = selector.length();
+        while( length > 0 && selector.charAt( length - 1 ) == ',' ) {
+            length--; // like String.split() without trailing empty strings
+        }
+        int count = 1;
+        for( int i = 0; i < length; i++ ) {
+            if( selector.charAt( i ) == ',' ) {
+                count++;
+            }
+        }
+        String[] selectors = new String[count];
+        for( int i = 0, start = 0; i < count; i++ ) {
+            int end = selector.indexOf( ',', start );
+            if( end < 0 || end > length ) {
+                end = length;
+            }
+            selectors[i] = trim( selector, start, end );
+            start = end + 1;
+        }
+        return selectors;
+    }
+
     /**
      * If the builder is empty or contains only whitespaces
      *
@@ -1095,4 +1649,48 @@ class LessParser implements FormattableContainer {
         }
         rules.add( rulesIdx++, formattable );
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addVariable( String name, Expression value ) {
+        variables.put( name, value );
+    }
+
+    /**
+     * A reader that count the read characters of an imported file for the listener.
+     */
+    private static class CountingReader extends FilterReader {
+
+        private long count;
+
+        CountingReader( Reader reader ) {
+            super( reader );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read() throws IOException {
+            int ch = super.read();
+            if( ch >= 0 ) {
+                count++;
+            }
+            return ch;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read( char[] cbuf, int off, int len ) throws IOException {
+            int n = super.read( cbuf, off, len );
+            if( n > 0 ) {
+                count += n;
+            }
+            return n;
+        }
+    }
 }
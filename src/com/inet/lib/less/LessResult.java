@@ -0,0 +1,82 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+/**
+ * The result of a single less file of a batch compilation. It hold the CSS data or the error.
+ */
+public class LessResult {
+
+    private final LessSource    source;
+
+    private final String        css;
+
+    private final LessException exception;
+
+    /**
+     * Create a instance.
+     * 
+     * @param source
+     *            the compiled source
+     * @param css
+     *            the resulting CSS data or null if failed
+     * @param exception
+     *            the error or null if successful
+     */
+    LessResult( LessSource source, String css, LessException exception ) {
+        this.source = source;
+        this.css = css;
+        this.exception = exception;
+    }
+
+    /**
+     * The compiled source.
+     * 
+     * @return the source
+     */
+    public LessSource getSource() {
+        return source;
+    }
+
+    /**
+     * The resulting CSS data.
+     * 
+     * @return the CSS or null if the compilation failed
+     */
+    public String getCss() {
+        return css;
+    }
+
+    /**
+     * The error of the compilation.
+     * 
+     * @return the exception or null if the compilation was successful
+     */
+    public LessException getException() {
+        return exception;
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.net.URL;
+
+/**
+ * A single less file of a batch compilation.
+ */
+public class LessSource {
+
+    private final URL    baseURL;
+
+    private final String lessData;
+
+    /**
+     * Create a instance.
+     * 
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param lessData
+     *            the input less data
+     */
+    public LessSource( URL baseURL, String lessData ) {
+        this.baseURL = baseURL;
+        this.lessData = lessData;
+    }
+
+    /**
+     * The baseURL for import of external less data.
+     * 
+     * @return the url, can be null
+     */
+    public URL getBaseURL() {
+        return baseURL;
+    }
+
+    /**
+     * The input less data.
+     * 
+     * @return the data
+     */
+    public String getLessData() {
+        return lessData;
+    }
+}
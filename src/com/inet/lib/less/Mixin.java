@@ -38,8 +38,6 @@ class Mixin extends LessObject implements Formattable {
     private final HashMultimap<String,Rule> mixins;
     private final List<Expression> paramValues;
     private final boolean important;
-    private List<MixinMatch> mixinRules;
-    private int stackID;
 
     Mixin( LessLookAheadReader reader, String name, Operation paramValues, HashMultimap<String,Rule> mixins ) {
         super( reader );
@@ -62,18 +60,53 @@ class Mixin extends LessObject implements Formattable {
         return MIXIN;
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public void appendTo( CssFormatter formatter ) {
+        appendTo( formatter, false );
+    }
+
+    /**
+     * Append the properties of the called mixins.
+     * 
+     * @param formatter
+     *            current formatter
+     * @param subRules
+     *            true, if the sub rules of this call are appended later with
+     *            {@link #appendSubRules(String[], CssFormatter, boolean)}
+     */
+    void appendTo( CssFormatter formatter, boolean subRules ) {
         formatter.setImportant( important );
+        long start = formatter.getListener() == null ? 0 : System.nanoTime();
         try {
-            for( MixinMatch match : getRules( formatter ) ) {
+            formatter.checkCancellation();
+            countCall( formatter );
+            enterAnalysis( formatter );
+            MixinProfile profile = formatter.getProfile();
+            for( MixinMatch match : getRules( formatter, profile ) ) {
                 Rule rule = match.getRule();
+                if( profile != null ) {
+                    profile.enter( this, rule, formatter, true );
+                }
                 formatter.addMixin( rule, match.getMixinParameters(), rule.getVariables() );
-                rule.appendPropertiesTo( formatter );
+                rule.appendPropertiesTo( formatter, subRules );
                 formatter.removeMixin();
+                if( profile != null ) {
+                    profile.exit( formatter );
+                }
+            }
+            exitAnalysis( formatter );
+            if( subRules ) {
+                if( start != 0 ) {
+                    formatter.addMixinTime( System.nanoTime() - start );
+                }
+            } else {
+                fireExpanded( formatter, start );
             }
         } catch( LessException ex ) {
-            ex.addPosition( filename, line, column );
+            ex.addPosition( getFileName(), getLine(), getColumn() );
             throw ex;
         } catch( StackOverflowError soe ) {
             throw createException( "Maximum call stack size exceeded in mixin: " + name );
@@ -81,29 +114,131 @@ class Mixin extends LessObject implements Formattable {
         formatter.setImportant( false );
     }
 
-    void appendSubRules( String[] parentSelector, CssFormatter formatter ) {
+    /**
+     * Append the sub rules of the called mixins. A call inside a rule appends its properties first with
+     * {@link #appendTo(CssFormatter)}. A call on top level has only sub rules.
+     * 
+     * @param parentSelector
+     *            the selectors of the caller or null on top level
+     * @param formatter
+     *            current formatter
+     * @param propertiesAppended
+     *            true, if the properties of this call were already appended and the call is counted
+     */
+    void appendSubRules( String[] parentSelector, CssFormatter formatter, boolean propertiesAppended ) {
+        long start = formatter.getListener() == null ? 0 : System.nanoTime();
         try {
-            for( MixinMatch match : getRules( formatter ) ) {
+            formatter.checkCancellation();
+            if( !propertiesAppended ) {
+                countCall( formatter );
+            }
+            enterAnalysis( formatter );
+            MixinProfile profile = formatter.getProfile();
+            for( MixinMatch match : getRules( formatter, propertiesAppended ? null : profile ) ) {
                 Rule rule = match.getRule();
+                if( profile != null ) {
+                    profile.enter( this, rule, formatter, !propertiesAppended );
+                }
                 formatter.addMixin( rule, match.getMixinParameters(), rule.getVariables() );
-                rule.appendMixinsTo( parentSelector, formatter );
+                rule.appendMixinsTo( parentSelector, formatter, propertiesAppended );
                 for( Rule subMixin : rule.getSubrules() ) {
                     if( !subMixin.isMixin() && (parentSelector == null || !subMixin.isInlineRule( formatter ) ) ) {
                         subMixin.appendTo( parentSelector, formatter );
                     }
                 }
                 formatter.removeMixin();
+                if( profile != null ) {
+                    profile.exit( formatter );
+                }
             }
+            exitAnalysis( formatter );
+            if( propertiesAppended && start != 0 ) {
+                // report one event for both parts of the call
+                start -= formatter.pollMixinTime();
+            }
+            fireExpanded( formatter, start );
         } catch( LessException ex ) {
-            ex.addPosition( filename, line, column );
+            ex.addPosition( getFileName(), getLine(), getColumn() );
             throw ex;
         }
     }
 
-    private List<MixinMatch> getRules( CssFormatter formatter ) {
-        if( mixinRules != null && stackID == formatter.stackID() ) {
-            return mixinRules;
+    /**
+     * Start the expansion of this mixin call in the output analysis if enabled.
+     * 
+     * @param formatter
+     *            current formatter
+     */
+    private void enterAnalysis( CssFormatter formatter ) {
+        OutputAnalysis analysis = formatter.getOutputAnalysis();
+        if( analysis != null ) {
+            analysis.enterMixin( this );
+        }
+    }
+
+    /**
+     * Finish the expansion of this mixin call in the output analysis if enabled.
+     * 
+     * @param formatter
+     *            current formatter
+     */
+    private static void exitAnalysis( CssFormatter formatter ) {
+        OutputAnalysis analysis = formatter.getOutputAnalysis();
+        if( analysis != null ) {
+            analysis.exitMixin();
+        }
+    }
+
+    /**
+     * Report the expanding of this mixin call to the listener if it was slower as the threshold.
+     * 
+     * @param formatter
+     *            current formatter
+     * @param start
+     *            the start time in nanoseconds
+     */
+    private void fireExpanded( CssFormatter formatter, long start ) {
+        CompileListener listener = formatter.getListener();
+        if( listener != null ) {
+            long duration = System.nanoTime() - start;
+            if( duration >= formatter.getMixinThreshold() ) {
+                listener.mixinExpanded( name, getFileName(), getLine(), duration );
+            }
+        }
+    }
+
+    /**
+     * Count the call of this mixin if statistics are enabled.
+     * 
+     * @param formatter
+     *            current formatter
+     */
+    private static void countCall( CssFormatter formatter ) {
+        CompileStats stats = formatter.getStats();
+        if( stats != null ) {
+            stats.mixinCall();
         }
+    }
+
+    /**
+     * Get the name of the called mixin.
+     * 
+     * @return the name
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Get the matching mixin definitions of this call.
+     * 
+     * @param formatter
+     *            current formatter
+     * @param profile
+     *            the profile that counts the guard rejections or null
+     * @return the definitions with matching parameters and guard
+     */
+    private List<MixinMatch> getRules( CssFormatter formatter, MixinProfile profile ) {
         List<Rule> rules = formatter.getMixin( name );
         if( rules == null ) {
             rules = mixins.get( name );
@@ -130,8 +265,7 @@ class Mixin extends LessObject implements Formattable {
                 throw createException( "Undefine mixin: " + name );
             }
         }
-        stackID = formatter.stackID();
-        mixinRules = new ArrayList<>();
+        List<MixinMatch> mixinRules = new ArrayList<>();
         boolean paramMatch = false;
         for( Rule rule : rules ) {
             MixinMatch matching = rule.match( formatter, paramValues );
@@ -139,6 +273,8 @@ class Mixin extends LessObject implements Formattable {
                 paramMatch = true;
                 if( matching.getGuard() ) {
                     mixinRules.add( matching );
+                } else if( profile != null ) {
+                    profile.guardRejected( this, rule );
                 }
             }
         }
@@ -0,0 +1,384 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Profiling data of mixin calls, aggregated per mixin definition and per call site. Set an instance with
+ * {@link LessOptions#setMixinProfile(MixinProfile)} to find the mixins that make a stylesheet slow to compile.
+ */
+public class MixinProfile {
+
+    /**
+     * The aggregated values of a single mixin definition or call site.
+     */
+    public static class Entry {
+
+        private final String name;
+
+        private final String location;
+
+        private long         calls;
+
+        private long         guardRejections;
+
+        private long         outputBytes;
+
+        private long         totalTime;
+
+        private long         selfTime;
+
+        /**
+         * Create an entry.
+         * 
+         * @param name
+         *            the mixin name
+         * @param location
+         *            the file and line
+         */
+        Entry( String name, String location ) {
+            this.name = name;
+            this.location = location;
+        }
+
+        /**
+         * Get the name of the mixin.
+         * 
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get the location of the definition or call site.
+         * 
+         * @return the file name and line separated with a colon
+         */
+        public String getLocation() {
+            return location;
+        }
+
+        /**
+         * Get the count of expansions.
+         * 
+         * @return the count
+         */
+        public long getCalls() {
+            return calls;
+        }
+
+        /**
+         * Get the count of definitions that match the parameters but are rejected by its guard.
+         * 
+         * @return the count
+         */
+        public long getGuardRejections() {
+            return guardRejections;
+        }
+
+        /**
+         * Get the approximate size of the CSS output.
+         * 
+         * @return the size in characters
+         */
+        public long getOutputBytes() {
+            return outputBytes;
+        }
+
+        /**
+         * Get the time of the expansions including nested mixin calls.
+         * 
+         * @return the time in nanoseconds
+         */
+        public long getTotalTime() {
+            return totalTime;
+        }
+
+        /**
+         * Get the time of the expansions without nested mixin calls.
+         * 
+         * @return the time in nanoseconds
+         */
+        public long getSelfTime() {
+            return selfTime;
+        }
+
+        /**
+         * Add the values of another entry.
+         * 
+         * @param other
+         *            the other entry
+         */
+        private void add( Entry other ) {
+            calls += other.calls;
+            guardRejections += other.guardRejections;
+            outputBytes += other.outputBytes;
+            totalTime += other.totalTime;
+            selfTime += other.selfTime;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return name + " (" + location + ") calls: " + calls + ", guard rejections: " + guardRejections + ", output: " + outputBytes + ", total: " + totalTime / 1000000.0 + " ms, self: " + selfTime / 1000000.0 + " ms";
+        }
+    }
+
+    /**
+     * A running expansion.
+     */
+    private static class Frame {
+
+        private Entry  definition;
+
+        private Entry  callSite;
+
+        private String stack;
+
+        private long   start;
+
+        private long   childTime;
+
+        private int    outputSize;
+
+        private int    resultCount;
+    }
+
+    private static final Comparator<Entry> BY_SELF_TIME = new Comparator<Entry>() {
+        @Override
+        public int compare( Entry e1, Entry e2 ) {
+            return Long.compare( e2.selfTime, e1.selfTime );
+        }
+    };
+
+    private final HashMap<String, Entry> definitions = new HashMap<>();
+
+    private final HashMap<String, Entry> callSites   = new HashMap<>();
+
+    private final TreeMap<String, Long>  folded      = new TreeMap<>();
+
+    private final ArrayList<Frame>       frames      = new ArrayList<>();
+
+    /**
+     * Get the entries of the mixin definitions.
+     * 
+     * @return the entries sorted by self time, the most expensive first
+     */
+    public synchronized List<Entry> getDefinitions() {
+        return sorted( definitions );
+    }
+
+    /**
+     * Get the entries of the mixin call sites.
+     * 
+     * @return the entries sorted by self time, the most expensive first
+     */
+    public synchronized List<Entry> getCallSites() {
+        return sorted( callSites );
+    }
+
+    /**
+     * Get the self time of the mixin call stacks in the folded format of flame graph tools. Every line contains the
+     * call sites separated with a semicolon and the self time in microseconds.
+     * 
+     * @return the folded stacks
+     */
+    public synchronized String getFoldedStacks() {
+        StringBuilder builder = new StringBuilder();
+        for( Map.Entry<String, Long> entry : folded.entrySet() ) {
+            builder.append( entry.getKey() ).append( ' ' ).append( entry.getValue() / 1000 ).append( '\n' );
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Sort the entries of a map.
+     * 
+     * @param map
+     *            the entries
+     * @return a new sorted list
+     */
+    private static List<Entry> sorted( HashMap<String, Entry> map ) {
+        List<Entry> list = new ArrayList<>( map.values() );
+        Collections.sort( list, BY_SELF_TIME );
+        return list;
+    }
+
+    /**
+     * Get or create the entry for a location.
+     * 
+     * @param map
+     *            the definitions or call sites
+     * @param name
+     *            the mixin name
+     * @param obj
+     *            the parsed object with the location
+     * @return the entry
+     */
+    private static Entry entry( HashMap<String, Entry> map, String name, LessObject obj ) {
+        String location = obj.getFileName() + ':' + obj.getLine();
+        String key = name + ' ' + location;
+        Entry entry = map.get( key );
+        if( entry == null ) {
+            map.put( key, entry = new Entry( name, location ) );
+        }
+        return entry;
+    }
+
+    /**
+     * Add the values of another profile, for example of a parallel formatted chunk.
+     * 
+     * @param other
+     *            the other profile
+     */
+    synchronized void add( MixinProfile other ) {
+        for( Map.Entry<String, Entry> entry : other.definitions.entrySet() ) {
+            Entry value = entry.getValue();
+            Entry current = definitions.get( entry.getKey() );
+            if( current == null ) {
+                definitions.put( entry.getKey(), current = new Entry( value.name, value.location ) );
+            }
+            current.add( value );
+        }
+        for( Map.Entry<String, Entry> entry : other.callSites.entrySet() ) {
+            Entry value = entry.getValue();
+            Entry current = callSites.get( entry.getKey() );
+            if( current == null ) {
+                callSites.put( entry.getKey(), current = new Entry( value.name, value.location ) );
+            }
+            current.add( value );
+        }
+        for( Map.Entry<String, Long> entry : other.folded.entrySet() ) {
+            addFolded( entry.getKey(), entry.getValue() );
+        }
+    }
+
+    /**
+     * Count a definition that match the parameters of a call but is rejected by its guard.
+     * 
+     * @param mixin
+     *            the call site
+     * @param rule
+     *            the definition
+     */
+    void guardRejected( Mixin mixin, Rule rule ) {
+        entry( definitions, rule.getSelectors()[0], rule ).guardRejections++;
+        entry( callSites, mixin.getName(), mixin ).guardRejections++;
+    }
+
+    /**
+     * Start the expansion of a mixin definition.
+     * 
+     * @param mixin
+     *            the call site
+     * @param rule
+     *            the definition
+     * @param formatter
+     *            the current formatter to measure the output
+     * @param count
+     *            true, if the call should be counted; false for the second pass of the sub rules
+     */
+    void enter( Mixin mixin, Rule rule, CssFormatter formatter, boolean count ) {
+        Frame frame = new Frame();
+        frame.definition = entry( definitions, rule.getSelectors()[0], rule );
+        frame.callSite = entry( callSites, mixin.getName(), mixin );
+        if( count ) {
+            frame.definition.calls++;
+            frame.callSite.calls++;
+        }
+        String name = mixin.getName() + '(' + frame.callSite.location + ')';
+        frame.stack = frames.isEmpty() ? name : frames.get( frames.size() - 1 ).stack + ';' + name;
+        frame.outputSize = formatter.getOutputSize();
+        frame.resultCount = formatter.getResultCount();
+        frames.add( frame );
+        frame.start = System.nanoTime();
+    }
+
+    /**
+     * Finish the expansion that was started last.
+     * 
+     * @param formatter
+     *            the current formatter to measure the output
+     */
+    void exit( CssFormatter formatter ) {
+        long time = System.nanoTime();
+        Frame frame = frames.remove( frames.size() - 1 );
+        long total = time - frame.start;
+        long self = total - frame.childTime;
+        long bytes = formatter.getResultSize( frame.resultCount ) + Math.max( 0, formatter.getOutputSize() ) - Math.max( 0, frame.outputSize );
+        frame.definition.totalTime += total;
+        frame.definition.selfTime += self;
+        frame.definition.outputBytes += bytes;
+        frame.callSite.totalTime += total;
+        frame.callSite.selfTime += self;
+        frame.callSite.outputBytes += bytes;
+        addFolded( frame.stack, self );
+        if( !frames.isEmpty() ) {
+            frames.get( frames.size() - 1 ).childTime += total;
+        }
+    }
+
+    /**
+     * Add self time to a call stack.
+     * 
+     * @param stack
+     *            the folded stack
+     * @param time
+     *            the time in nanoseconds
+     */
+    private void addFolded( String stack, long time ) {
+        Long value = folded.get( stack );
+        folded.put( stack, value == null ? time : value + time );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append( "definitions:\n" );
+        for( Entry entry : sorted( definitions ) ) {
+            builder.append( entry ).append( '\n' );
+        }
+        builder.append( "call sites:\n" );
+        for( Entry entry : sorted( callSites ) ) {
+            builder.append( entry ).append( '\n' );
+        }
+        return builder.toString();
+    }
+}
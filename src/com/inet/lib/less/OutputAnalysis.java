@@ -0,0 +1,425 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Attribution of the CSS output size to the source rules, mixin calls and files. It also finds blocks with duplicated
+ * declarations. Set an instance with {@link LessOptions#setOutputAnalysis(OutputAnalysis)} to find the less constructs
+ * that bloat the output.
+ */
+public class OutputAnalysis {
+
+    /**
+     * The size of the output that a single source construct has produced.
+     */
+    public static class Entry {
+
+        private final String name;
+
+        private final String location;
+
+        private long         count;
+
+        private long         bytes;
+
+        /**
+         * The size of the first occurrence of a duplicated block, it is not part of the redundant size.
+         */
+        private long         firstBytes;
+
+        /**
+         * Create an entry.
+         * 
+         * @param name
+         *            the name of the rule, mixin or file
+         * @param location
+         *            the file and line or null for files
+         */
+        Entry( String name, String location ) {
+            this.name = name;
+            this.location = location;
+        }
+
+        /**
+         * Get the selectors of a rule, the name of a mixin or the name of a file.
+         * 
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get the location of the rule or mixin call.
+         * 
+         * @return the file name and line separated with a colon or null for files
+         */
+        public String getLocation() {
+            return location;
+        }
+
+        /**
+         * Get the count of written properties for rules, mixins and files, or the count of occurrences of a duplicated
+         * block.
+         * 
+         * @return the count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Get the size of the written properties, or the size of the redundant occurrences of a duplicated block.
+         * 
+         * @return the size in characters
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return (location == null ? name : name + " (" + location + ')') + ": " + bytes + " bytes, count: " + count;
+        }
+    }
+
+    private static final Comparator<Entry> BY_BYTES   = new Comparator<Entry>() {
+        @Override
+        public int compare( Entry e1, Entry e2 ) {
+            return Long.compare( e2.bytes, e1.bytes );
+        }
+    };
+
+    private final HashMap<String, Entry>   rules      = new HashMap<>();
+
+    private final HashMap<String, Entry>   mixins     = new HashMap<>();
+
+    private final HashMap<String, Entry>   files      = new HashMap<>();
+
+    private final HashMap<String, Entry>   blocks     = new HashMap<>();
+
+    private final ArrayList<Rule>          ruleStack  = new ArrayList<>();
+
+    private final ArrayList<Mixin>         mixinStack = new ArrayList<>();
+
+    private long                           totalBytes;
+
+    /**
+     * Get the CSS rules sorted by the size of its properties. Properties of mixins are attributed to the rule that call
+     * the mixin.
+     * 
+     * @return the entries, the largest first
+     */
+    public synchronized List<Entry> getRules() {
+        return sorted( rules, false );
+    }
+
+    /**
+     * Get the mixin calls sorted by the size of its properties. Properties of nested mixin calls are attributed to the
+     * innermost call.
+     * 
+     * @return the entries, the largest first
+     */
+    public synchronized List<Entry> getMixins() {
+        return sorted( mixins, false );
+    }
+
+    /**
+     * Get the source files sorted by the size of the properties that are declared in the file.
+     * 
+     * @return the entries, the largest first
+     */
+    public synchronized List<Entry> getFiles() {
+        return sorted( files, false );
+    }
+
+    /**
+     * Get the blocks whose declarations occur more than once in the output. The name of an entry is the declaration
+     * block and the location are the selectors of the first occurrence.
+     * 
+     * @return the entries, the largest redundant size first
+     */
+    public synchronized List<Entry> getDuplicates() {
+        return sorted( blocks, true );
+    }
+
+    /**
+     * Get the total size of the output including selectors, at-rules and comments.
+     * 
+     * @return the size in characters
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Sort the entries of a map.
+     * 
+     * @param map
+     *            the entries
+     * @param duplicates
+     *            true, if only entries with more than one occurrence should be returned
+     * @return a new sorted list
+     */
+    private static List<Entry> sorted( HashMap<String, Entry> map, boolean duplicates ) {
+        List<Entry> list = new ArrayList<>();
+        for( Entry entry : map.values() ) {
+            if( !duplicates || entry.count > 1 ) {
+                list.add( entry );
+            }
+        }
+        Collections.sort( list, BY_BYTES );
+        return list;
+    }
+
+    /**
+     * Get or create the entry for a key.
+     * 
+     * @param map
+     *            the target map
+     * @param key
+     *            the key
+     * @param name
+     *            the name of a new entry
+     * @param location
+     *            the location of a new entry
+     * @return the entry
+     */
+    private static Entry entry( HashMap<String, Entry> map, String key, String name, String location ) {
+        Entry entry = map.get( key );
+        if( entry == null ) {
+            map.put( key, entry = new Entry( name, location ) );
+        }
+        return entry;
+    }
+
+    /**
+     * Get the location of a parsed object.
+     * 
+     * @param obj
+     *            the object
+     * @return the file name and line
+     */
+    private static String location( LessObject obj ) {
+        return obj.getFileName() + ':' + obj.getLine();
+    }
+
+    /**
+     * Join selectors to a single string.
+     * 
+     * @param selectors
+     *            the selectors
+     * @return the comma separated selectors
+     */
+    private static String join( String[] selectors ) {
+        StringBuilder builder = new StringBuilder();
+        for( String selector : selectors ) {
+            if( builder.length() > 0 ) {
+                builder.append( ", " );
+            }
+            builder.append( selector );
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Add the values of another analysis, for example of a parallel formatted chunk.
+     * 
+     * @param other
+     *            the other analysis
+     */
+    synchronized void add( OutputAnalysis other ) {
+        add( rules, other.rules );
+        add( mixins, other.mixins );
+        add( files, other.files );
+        for( Map.Entry<String, Entry> entry : other.blocks.entrySet() ) {
+            Entry value = entry.getValue();
+            Entry current = entry( blocks, entry.getKey(), value.name, value.location );
+            if( current.count == 0 ) {
+                current.firstBytes = value.firstBytes;
+            } else {
+                // the first occurrence of the other analysis is also redundant
+                current.bytes += value.firstBytes;
+            }
+            current.count += value.count;
+            current.bytes += value.bytes;
+        }
+        totalBytes += other.totalBytes;
+    }
+
+    /**
+     * Add the entries of one map to another.
+     * 
+     * @param target
+     *            the target map
+     * @param source
+     *            the source map
+     */
+    private static void add( HashMap<String, Entry> target, HashMap<String, Entry> source ) {
+        for( Map.Entry<String, Entry> entry : source.entrySet() ) {
+            Entry value = entry.getValue();
+            Entry current = entry( target, entry.getKey(), value.name, value.location );
+            current.count += value.count;
+            current.bytes += value.bytes;
+        }
+    }
+
+    /**
+     * Start the formatting of a rule.
+     * 
+     * @param rule
+     *            the rule
+     */
+    void enterRule( Rule rule ) {
+        ruleStack.add( rule );
+    }
+
+    /**
+     * Finish the formatting of the rule that was started last.
+     */
+    void exitRule() {
+        ruleStack.remove( ruleStack.size() - 1 );
+    }
+
+    /**
+     * Start the expansion of a mixin call.
+     * 
+     * @param mixin
+     *            the mixin call
+     */
+    void enterMixin( Mixin mixin ) {
+        mixinStack.add( mixin );
+    }
+
+    /**
+     * Finish the expansion of the mixin call that was started last.
+     */
+    void exitMixin() {
+        mixinStack.remove( mixinStack.size() - 1 );
+    }
+
+    /**
+     * Attribute a written property to the current rule, the current mixin call and the file of the declaration.
+     * 
+     * @param value
+     *            the value of the property with the position of the declaration
+     * @param bytes
+     *            the written size
+     */
+    void property( LessObject value, int bytes ) {
+        if( !ruleStack.isEmpty() ) {
+            Rule rule = ruleStack.get( ruleStack.size() - 1 );
+            String location = location( rule );
+            String name = join( rule.getSelectors() );
+            Entry entry = entry( rules, name + ' ' + location, name, location );
+            entry.count++;
+            entry.bytes += bytes;
+        }
+        if( !mixinStack.isEmpty() ) {
+            Mixin mixin = mixinStack.get( mixinStack.size() - 1 );
+            String location = location( mixin );
+            Entry entry = entry( mixins, mixin.getName() + ' ' + location, mixin.getName(), location );
+            entry.count++;
+            entry.bytes += bytes;
+        }
+        String fileName = value.getFileName();
+        Entry entry = entry( files, String.valueOf( fileName ), String.valueOf( fileName ), null );
+        entry.count++;
+        entry.bytes += bytes;
+    }
+
+    /**
+     * Record a written CSS block to find duplicated declarations.
+     * 
+     * @param selectors
+     *            the selectors of the block
+     * @param declarations
+     *            the formatted declarations
+     * @param bytes
+     *            the written size of the block including the selectors
+     */
+    void block( String[] selectors, CharSequence declarations, int bytes ) {
+        String key = declarations.toString();
+        Entry entry = entry( blocks, key, key.trim(), join( selectors ) );
+        if( entry.count++ > 0 ) {
+            entry.bytes += bytes;
+        } else {
+            entry.firstBytes = bytes;
+        }
+    }
+
+    /**
+     * Add to the total size of the output.
+     * 
+     * @param bytes
+     *            the written size
+     */
+    void addTotalBytes( long bytes ) {
+        totalBytes += bytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append( "total: " ).append( totalBytes ).append( " bytes\n" );
+        append( builder, "rules", getRules() );
+        append( builder, "mixins", getMixins() );
+        append( builder, "files", getFiles() );
+        append( builder, "duplicated blocks", getDuplicates() );
+        return builder.toString();
+    }
+
+    /**
+     * Append the largest entries of a list to the report.
+     * 
+     * @param builder
+     *            the target
+     * @param title
+     *            the title of the section
+     * @param entries
+     *            the sorted entries
+     */
+    private static void append( StringBuilder builder, String title, List<Entry> entries ) {
+        builder.append( title ).append( ":\n" );
+        for( int i = 0; i < entries.size() && i < 20; i++ ) {
+            builder.append( "  " ).append( entries.get( i ).toString().replace( '\n', ' ' ) ).append( '\n' );
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The top level rules of a file that was imported with the option "reference". The mixins and variables can be used
+ * but the rules produce only output for selectors that extend it.
+ */
+class ReferenceImport implements Formattable {
+
+    private final String      key;
+
+    private List<Formattable> rules;
+
+    /**
+     * Create an instance.
+     * 
+     * @param key
+     *            the URL of the imported file
+     * @param rules
+     *            the top level rules of the imported file
+     */
+    ReferenceImport( String key, List<Formattable> rules ) {
+        this.key = key;
+        this.rules = rules;
+    }
+
+    /**
+     * Get the URL of the imported file.
+     * 
+     * @return the URL
+     */
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * Remove the rules from this reference because the file is imported again without the option "reference".
+     * 
+     * @return the top level rules of the imported file
+     */
+    List<Formattable> release() {
+        List<Formattable> released = rules;
+        rules = Collections.emptyList();
+        return released;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final int getType() {
+        return RULE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void appendTo( CssFormatter formatter ) {
+        formatter.formatReference( rules );
+    }
+}
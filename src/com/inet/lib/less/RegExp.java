@@ -26,6 +26,7 @@
  */
 package com.inet.lib.less;
 
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -69,11 +70,63 @@ class RegExp {
     // \\\$ ---> Pattern replacement unescape in replacement preprocessing --> \$
     private static final String  REPLACEMENT_DOLLAR_DOLLAR_FOR_JAVA    = "\\\\\\$";
 
-    private boolean              global;
+    /**
+     * The maximum count of entries in the caches. If a cache is full then it is cleared.
+     */
+    private static final int                               CACHE_SIZE   = 1024;
+
+    /**
+     * The compiled expressions by flags and pattern, shared by all compilations.
+     */
+    private static final ConcurrentHashMap<String, RegExp> EXPRESSIONS  = new ConcurrentHashMap<>();
+
+    /**
+     * The replacements translated to Java syntax by its JavaScript syntax.
+     */
+    private static final ConcurrentHashMap<String, String> REPLACEMENTS = new ConcurrentHashMap<>();
+
+    private final boolean        global;
 
     private final Pattern        pattern;
 
+    /**
+     * Get a compiled expression from the cache or compile it.
+     * 
+     * @param pattern
+     *            the regular expression
+     * @param flags
+     *            the JavaScript flags g, i and m
+     * @return the expression
+     */
+    static RegExp get( String pattern, String flags ) {
+        String key = flags + '/' + pattern; // flags can not contain a slash
+        RegExp regExp = EXPRESSIONS.get( key );
+        if( regExp == null ) {
+            regExp = new RegExp( pattern, flags );
+            put( EXPRESSIONS, key, regExp );
+        }
+        return regExp;
+    }
+
+    /**
+     * Add a value to a bounded cache.
+     * 
+     * @param cache
+     *            the cache
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     */
+    private static <V> void put( ConcurrentHashMap<String, V> cache, String key, V value ) {
+        if( cache.size() >= CACHE_SIZE ) {
+            cache.clear();
+        }
+        cache.put( key, value );
+    }
+
     RegExp( String pattern, String flags ) {
+        boolean global = false;
         int patternFlags = Pattern.UNIX_LINES;
         for( int i = 0; i < flags.length(); i++ ) {
             char flag = flags.charAt( i );
@@ -91,10 +144,43 @@ class RegExp {
                     throw new ParameterOutOfBoundsException();
             }
         }
+        this.global = global;
         this.pattern = Pattern.compile( pattern, patternFlags );
     }
 
     public String replace( String input, String replacement ) {
+        Matcher matcher = pattern.matcher( input );
+        replacement = translate( replacement );
+        return global ? matcher.replaceAll( replacement ) : matcher.replaceFirst( replacement );
+    }
+
+    /**
+     * Translate a replacement from JavaScript to Java syntax. The results are cached.
+     * 
+     * @param replacement
+     *            the replacement in JavaScript syntax
+     * @return the replacement in Java syntax
+     */
+    private static String translate( String replacement ) {
+        if( replacement.indexOf( '\\' ) < 0 && replacement.indexOf( '$' ) < 0 ) {
+            return replacement; // nothing to translate
+        }
+        String translated = REPLACEMENTS.get( replacement );
+        if( translated == null ) {
+            translated = translateImpl( replacement );
+            put( REPLACEMENTS, replacement, translated );
+        }
+        return translated;
+    }
+
+    /**
+     * Translate a replacement from JavaScript to Java syntax.
+     * 
+     * @param replacement
+     *            the replacement in JavaScript syntax
+     * @return the replacement in Java syntax
+     */
+    private static String translateImpl( String replacement ) {
         // Replace \ in the replacement with \\ to escape it for Java replace.
         replacement = REPLACEMENT_BACKSLASH.matcher( replacement ).replaceAll( REPLACEMENT_BACKSLASH_FOR_JAVA );
 
@@ -109,9 +195,6 @@ class RegExp {
         }
 
         // Replace the Javascript-ese $$ in the replacement with Java-ese \$.
-        replacement = REPLACEMENT_DOLLAR_DOLLAR.matcher( replacement ).replaceAll( REPLACEMENT_DOLLAR_DOLLAR_FOR_JAVA );
-
-        Matcher matcher = pattern.matcher( input );
-        return global ? matcher.replaceAll( replacement ) : matcher.replaceFirst( replacement );
+        return REPLACEMENT_DOLLAR_DOLLAR.matcher( replacement ).replaceAll( REPLACEMENT_DOLLAR_DOLLAR_FOR_JAVA );
     }
 }
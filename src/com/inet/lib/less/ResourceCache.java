@@ -0,0 +1,346 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache for the resources of the function data-uri. An instance can be shared between many compilations with
+ * {@link LessOptions#setResourceCache(ResourceCache)}. Local files are read again if the modification time has
+ * changed. Every resource hold its encoded payloads so that it is encoded only once.
+ */
+public class ResourceCache {
+
+    private static final char[]                       BASE64    = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private static final char[]                       HEX       = "0123456789ABCDEF".toCharArray();
+
+    private final ConcurrentHashMap<String, Resource> resources = new ConcurrentHashMap<>();
+
+    /**
+     * A loaded resource.
+     */
+    static class Resource {
+
+        private final long      lastModified;
+
+        private final int       limit;
+
+        private final byte[]    data;
+
+        private final String    mimeType;
+
+        private volatile String base64;
+
+        private volatile String encoded;
+
+        /**
+         * Create an instance.
+         * 
+         * @param lastModified
+         *            the modification time of a local file or 0
+         * @param limit
+         *            the count of bytes that was read at most
+         * @param data
+         *            the content or null if the resource is not smaller as the limit
+         * @param mimeType
+         *            the guessed mime type
+         */
+        private Resource( long lastModified, int limit, byte[] data, String mimeType ) {
+            this.lastModified = lastModified;
+            this.limit = limit;
+            this.data = data;
+            this.mimeType = mimeType;
+        }
+
+        /**
+         * If the resource is smaller as the size.
+         * 
+         * @param maxSize
+         *            the size in bytes
+         * @return true, if smaller
+         */
+        boolean isSmaller( int maxSize ) {
+            return data != null && data.length < maxSize;
+        }
+
+        /**
+         * Get the mime type that was guessed from the file extension or the content.
+         * 
+         * @return the mime type with the suffix ";base64" for binary data
+         */
+        String getMimeType() {
+            return mimeType;
+        }
+
+        /**
+         * Get the content Base64 encoded.
+         * 
+         * @return the encoded content
+         */
+        String getBase64() {
+            String result = base64;
+            if( result == null ) {
+                base64 = result = encodeBase64( data );
+            }
+            return result;
+        }
+
+        /**
+         * Get the content URL encoded.
+         * 
+         * @return the encoded content
+         */
+        String getEncoded() {
+            String result = encoded;
+            if( result == null ) {
+                encoded = result = encodeUrl( data );
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Create an empty cache.
+     */
+    public ResourceCache() {
+    }
+
+    /**
+     * Remove all cached resources.
+     */
+    public void clear() {
+        resources.clear();
+    }
+
+    /**
+     * Get a resource. It is read if it is not cached, if the local file was modified or if the cached resource was
+     * read with a smaller limit.
+     * 
+     * @param url
+     *            the url of the resource
+     * @param maxSize
+     *            the size from which a resource is not embedded
+     * @param listener
+     *            the listener of the compilation or null
+     * @return the resource
+     * @throws IOException
+     *             if the resource can not be read
+     */
+    Resource get( URL url, int maxSize, CompileListener listener ) throws IOException {
+        // the string is used as key because URL.equals() resolve the host name
+        String key = url.toString();
+        long lastModified = 0;
+        if( "file".equals( url.getProtocol() ) ) {
+            try {
+                lastModified = new File( url.toURI() ).lastModified();
+            } catch( URISyntaxException | IllegalArgumentException ex ) {
+                lastModified = new File( url.getPath() ).lastModified();
+            }
+        }
+        Resource resource = resources.get( key );
+        if( resource == null || resource.lastModified != lastModified || (resource.data == null && resource.limit < maxSize) ) {
+            resource = load( url, lastModified, maxSize, listener );
+            resources.put( key, resource );
+        }
+        return resource;
+    }
+
+    /**
+     * Read a resource. Only the bytes up to the limit are read.
+     * 
+     * @param url
+     *            the url of the resource
+     * @param lastModified
+     *            the modification time of a local file or 0
+     * @param limit
+     *            the size from which a resource is not embedded
+     * @param listener
+     *            the listener of the compilation or null
+     * @return the resource
+     * @throws IOException
+     *             if the resource can not be read
+     */
+    private static Resource load( URL url, long lastModified, int limit, CompileListener listener ) throws IOException {
+        long start = listener == null ? 0 : System.nanoTime();
+        byte[] data = new byte[Math.min( limit, 16384 )];
+        int size = 0;
+        try (InputStream input = url.openStream()) {
+            int count;
+            while( size < limit && (count = input.read( data, size, data.length - size )) > 0 ) {
+                size += count;
+                if( size == data.length && size < limit ) {
+                    data = Arrays.copyOf( data, Math.min( limit, 2 * size ) );
+                }
+            }
+            if( size >= limit || input.read() >= 0 ) {
+                size = limit;
+                data = null;
+            }
+        }
+        if( listener != null ) {
+            listener.resourceLoaded( url, size, System.nanoTime() - start );
+        }
+        if( data == null ) {
+            return new Resource( lastModified, limit, null, null );
+        }
+        data = Arrays.copyOf( data, size );
+        return new Resource( lastModified, limit, data, mimeType( url.getPath(), data ) );
+    }
+
+    /**
+     * Guess the mime type from the file extension. If the extension is unknown then the content is checked for known
+     * signatures.
+     * 
+     * @param path
+     *            the path of the resource
+     * @param data
+     *            the content
+     * @return the mime type with the suffix ";base64" for binary data
+     */
+    static String mimeType( String path, byte[] data ) {
+        switch( path.substring( path.lastIndexOf( '.' ) + 1 ).toLowerCase() ) {
+            case "gif":
+                return "image/gif;base64";
+            case "png":
+                return "image/png;base64";
+            case "jpg":
+            case "jpeg":
+                return "image/jpeg;base64";
+            case "webp":
+                return "image/webp;base64";
+            case "ico":
+                return "image/x-icon;base64";
+            case "svg":
+                return "image/svg+xml";
+            case "woff":
+                return "font/woff;base64";
+            case "woff2":
+                return "font/woff2;base64";
+            case "ttf":
+                return "font/ttf;base64";
+            case "otf":
+                return "font/otf;base64";
+            case "css":
+                return "text/css";
+        }
+        if( startsWith( data, 0x89, 'P', 'N', 'G' ) ) {
+            return "image/png;base64";
+        }
+        if( startsWith( data, 'G', 'I', 'F', '8' ) ) {
+            return "image/gif;base64";
+        }
+        if( startsWith( data, 0xFF, 0xD8, 0xFF ) ) {
+            return "image/jpeg;base64";
+        }
+        if( startsWith( data, 'w', 'O', 'F', 'F' ) ) {
+            return "font/woff;base64";
+        }
+        if( startsWith( data, 'w', 'O', 'F', '2' ) ) {
+            return "font/woff2;base64";
+        }
+        if( startsWith( data, '<', 's', 'v', 'g' ) ) {
+            return "image/svg+xml";
+        }
+        return "text/html";
+    }
+
+    /**
+     * Check the signature of the content.
+     * 
+     * @param data
+     *            the content
+     * @param signature
+     *            the expected first bytes
+     * @return true, if the content starts with the signature
+     */
+    private static boolean startsWith( byte[] data, int... signature ) {
+        if( data.length < signature.length ) {
+            return false;
+        }
+        for( int i = 0; i < signature.length; i++ ) {
+            if( (data[i] & 0xFF) != signature[i] ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Encode the data with Base64.
+     * 
+     * @param data
+     *            the data
+     * @return the encoded data
+     */
+    static String encodeBase64( byte[] data ) {
+        char[] chars = new char[(data.length + 2) / 3 * 4];
+        int c = 0;
+        int i = 0;
+        for( ; i + 2 < data.length; i += 3 ) {
+            int bits = (data[i] & 0xFF) << 16 | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF);
+            chars[c++] = BASE64[bits >>> 18];
+            chars[c++] = BASE64[(bits >>> 12) & 0x3F];
+            chars[c++] = BASE64[(bits >>> 6) & 0x3F];
+            chars[c++] = BASE64[bits & 0x3F];
+        }
+        int rest = data.length - i;
+        if( rest > 0 ) {
+            int bits = (data[i] & 0xFF) << 16 | (rest == 2 ? (data[i + 1] & 0xFF) << 8 : 0);
+            chars[c++] = BASE64[bits >>> 18];
+            chars[c++] = BASE64[(bits >>> 12) & 0x3F];
+            chars[c++] = rest == 2 ? BASE64[(bits >>> 6) & 0x3F] : '=';
+            chars[c++] = '=';
+        }
+        return new String( chars );
+    }
+
+    /**
+     * Encode the data for an URL. Only letters, digits and the characters "-_*." are not encoded.
+     * 
+     * @param data
+     *            the data
+     * @return the encoded data
+     */
+    static String encodeUrl( byte[] data ) {
+        StringBuilder builder = new StringBuilder( data.length + 16 );
+        for( byte b : data ) {
+            if( (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '-' || b == '_' || b == '*' || b == '.' ) {
+                builder.append( (char)b );
+            } else {
+                builder.append( '%' ).append( HEX[(b >> 4) & 0xF] ).append( HEX[b & 0xF] );
+            }
+        }
+        return builder.toString();
+    }
+}
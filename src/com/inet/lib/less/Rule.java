@@ -27,6 +27,7 @@
 package com.inet.lib.less;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
@@ -35,27 +36,72 @@ import java.util.List;
  */
 class Rule extends LessObject implements Formattable, FormattableContainer {
 
-    private static final HashMap<String, Expression> NO_MATCH  = new HashMap<>();
+    private static final HashMap<String, Expression> NO_MATCH      = new HashMap<>();
+
+    private static final Formattable[]               NO_PROPERTIES = new Formattable[0];
+
+    private static final Rule[]                      NO_RULES      = new Rule[0];
 
     private String[]                    selectors;
 
+    /**
+     * The placeholders of the selectors or null if no selector has a placeholder.
+     */
+    private Interpolation[]             templates;
+
     private final List<Expression>      params;
 
     private VariableExpression          varArg;
 
     private Expression                  guard;
 
-    private List<Formattable>           properties = new ArrayList<>();
+    private Formattable[]               properties = NO_PROPERTIES;
 
-    private List<Rule>                  subrules = new ArrayList<>();
+    private Rule[]                      subrules = NO_RULES;
 
-    private HashMap<String, Expression> variables  = new HashMap<>();
+    /**
+     * The properties that are collected while parsing or null if the rule is complete.
+     */
+    private ArrayList<Formattable>      addedProperties;
+
+    /**
+     * The sub rules that are collected while parsing or null if the rule is complete.
+     */
+    private ArrayList<Rule>             addedSubrules;
 
-    Rule( LessLookAheadReader reader, String selectors, Operation params, Expression guard ) {
+    /**
+     * The variables of this rule or null if there are no variables.
+     */
+    private HashMap<String, Expression> variables;
+
+    /**
+     * The not parsed body of a mixin or null if the body is parsed.
+     */
+    private volatile LazyMixinBody      body;
+
+    /**
+     * Create a new rule.
+     * 
+     * @param reader
+     *            the reader with parse position
+     * @param selectors
+     *            the trim selectors of the rule
+     * @param params
+     *            the parameters if it is a mixin, else null
+     * @param guard
+     *            an optional guard
+     */
+    Rule( LessLookAheadReader reader, String[] selectors, Operation params, Expression guard ) {
         super( reader );
-        this.selectors = selectors.split( "," );
-        for( int i = 0; i < this.selectors.length; i++ ) {
-            this.selectors[i] = this.selectors[i].trim();
+        this.selectors = selectors;
+        for( int i = 0; i < selectors.length; i++ ) {
+            Interpolation template = Interpolation.selector( selectors[i] );
+            if( !template.isConstant() ) {
+                if( templates == null ) {
+                    templates = new Interpolation[selectors.length];
+                }
+                templates[i] = template;
+            }
         }
         if( params == null ) {
             this.params = null;
@@ -84,38 +130,102 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
         return RULE;
     }
 
+    /**
+     * Set the body of a mixin that should be parsed on first use.
+     * 
+     * @param body
+     *            the not parsed body
+     */
+    void setLazyBody( LazyMixinBody body ) {
+        this.body = body;
+    }
+
+    /**
+     * Parse the body if it was not parsed. Mixins can be used from parallel formatters.
+     */
+    private void parseBody() {
+        if( body != null ) {
+            synchronized( this ) {
+                LazyMixinBody lazyBody = body;
+                if( lazyBody != null ) {
+                    lazyBody.parse( this, false );
+                    body = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The properties are collected in lists while parsing and are stored in arrays of exact size if the rule is
+     * complete.
+     */
     @Override
     public void add( Formattable formattable ) {
-        properties.add( formattable );
+        if( addedProperties == null ) {
+            addedProperties = new ArrayList<>( Arrays.asList( properties ) );
+        }
+        addedProperties.add( formattable );
         if( formattable instanceof Rule ) {
-            subrules.add( (Rule)formattable );
+            if( addedSubrules == null ) {
+                addedSubrules = new ArrayList<>( Arrays.asList( subrules ) );
+            }
+            addedSubrules.add( (Rule)formattable );
         }
     }
 
+    /**
+     * Finish the parsing of this rule. The collected properties and sub rules are moved into arrays of exact size.
+     */
+    void complete() {
+        if( addedProperties != null ) {
+            properties = addedProperties.toArray( new Formattable[addedProperties.size()] );
+            addedProperties = null;
+        }
+        if( addedSubrules != null ) {
+            subrules = addedSubrules.toArray( new Rule[addedSubrules.size()] );
+            addedSubrules = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addVariable( String name, Expression value ) {
+        if( variables == null ) {
+            variables = new HashMap<>();
+        }
+        variables.put( name, value );
+    }
+
     @Override
     public void appendTo( CssFormatter formatter ) {
         if( isValidCSS( formatter ) ) {
             try {
                 appendTo( null, formatter );
             } catch( LessException ex ) {
-                ex.addPosition( filename, line, column );
+                ex.addPosition( getFileName(), getLine(), getColumn() );
                 throw ex;
             }
         }
     }
 
     void appendTo( String[] mainSelector, CssFormatter formatter ) {
+        parseBody();
+        OutputAnalysis analysis = formatter.getOutputAnalysis();
+        if( analysis != null ) {
+            analysis.enterRule( this );
+        }
         try {
             String[] sel = selectors;
-
-            for( int s = 0; s < sel.length; s++ ) {
-                final String selector = sel[s];
-                String str = SelectorUtils.replacePlaceHolder( formatter, selector, this );
-                if( selector != str ) {
-                    if( sel == selectors ) {
-                        sel = sel.clone(); // we does not want change the declaration of this selectors
+            if( templates != null ) {
+                sel = sel.clone(); // we does not want change the declaration of this selectors
+                for( int s = 0; s < sel.length; s++ ) {
+                    if( templates[s] != null ) {
+                        sel[s] = templates[s].toString( formatter, this );
                     }
-                    sel[s] = str;
                 }
             }
 
@@ -126,18 +236,20 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
                 media( sel, mainSelector, formatter );
                 return;
             } else {
-                sel = SelectorUtils.merge( mainSelector, sel );
+                // selectors with placeholders are new arrays on every call
+                sel = templates == null ? formatter.mergeSelectors( mainSelector, sel ) : SelectorUtils.merge( mainSelector, sel );
             }
             formatter.addMixin( this, null, variables );
 
             if( sel[0].startsWith( "@" ) ) {
                 ruleset( sel, formatter );
             } else {
-                if( properties.size() > 0 ) {
+                if( properties.length > 0 ) {
                     int size0 = formatter.getOutputSize();
                     CssFormatter block = formatter.startBlock( sel );
+                    block.mapSelectors( this );
                     int size1 = block.getOutputSize();
-                    appendPropertiesTo( block );
+                    appendPropertiesTo( block, true );
                     int size2 = block.getOutputSize();
                     block.endBlock();
                     if( block == formatter && size1 == size2 ) {
@@ -147,7 +259,7 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
 
                 for( Formattable prop : properties ) {
                     if( prop instanceof Mixin ) {
-                        ((Mixin)prop).appendSubRules( sel, formatter );
+                        ((Mixin)prop).appendSubRules( sel, formatter, true );
                     }
                 }
 
@@ -159,29 +271,34 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
             }
             formatter.removeMixin();
         } catch( LessException ex ) {
-            ex.addPosition( filename, line, column );
+            ex.addPosition( getFileName(), getLine(), getColumn() );
             throw ex;
         } catch( Exception ex ) {
             throw createException( ex );
+        } finally {
+            if( analysis != null ) {
+                analysis.exitRule();
+            }
         }
     }
 
     private void media( String[] mediaSelector, String[] blockSelector, CssFormatter formatter ) {
-        if( properties.size() > 0 ) {
+        if( properties.length > 0 ) {
             int size0 = formatter.getOutputSize();
             CssFormatter block = formatter.startBlock( mediaSelector );
+            block.mapSelectors( this );
             if( block != formatter ) {
                 size0 = block.getOutputSize();
             }
             block.startBlock( blockSelector );
             int size1 = block.getOutputSize();
-            appendPropertiesTo( block );
+            appendPropertiesTo( block, true );
             int size2 = block.getOutputSize();
             block.endBlock();
             int size3 = block.getOutputSize();
             for( Formattable prop : properties ) {
                 if( prop instanceof Mixin ) {
-                    ((Mixin)prop).appendSubRules( blockSelector, block );
+                    ((Mixin)prop).appendSubRules( blockSelector, block, true );
                 }
             }
             int size4 = block.getOutputSize();
@@ -193,12 +310,11 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
 
         for( Rule rule : subrules ) {
             final String[] ruleSelector = rule.getSelectors();
-            String name = ruleSelector[0];
-            name = SelectorUtils.replacePlaceHolder( formatter, name, this );
+            String name = rule.getSelector( 0, formatter );
             if( name.startsWith( "@media" ) ) {
                 rule.media( new String[]{mediaSelector[0] + " and " + name.substring( 6 ).trim()}, blockSelector, formatter );
             } else {
-                rule.media( mediaSelector, SelectorUtils.merge( blockSelector, ruleSelector ), formatter );
+                rule.media( mediaSelector, formatter.mergeSelectors( blockSelector, ruleSelector ), formatter );
             }
         }
     }
@@ -210,11 +326,12 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
      */
     private void ruleset( String[] sel, CssFormatter formatter ) {
         formatter = formatter.startBlock( sel );
-        appendPropertiesTo( formatter );
+        formatter.mapSelectors( this );
+        appendPropertiesTo( formatter, true );
 
         for( Formattable prop : properties ) {
             if( prop instanceof Mixin ) {
-                ((Mixin)prop).appendSubRules( null, formatter );
+                ((Mixin)prop).appendSubRules( null, formatter, true );
             }
         }
 
@@ -224,11 +341,22 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
         formatter.endBlock();
     }
 
-    void appendMixinsTo( String[] parentSelector, CssFormatter formatter ) {
+    /**
+     * Append the sub rules of the mixin calls in this rule.
+     * 
+     * @param parentSelector
+     *            the selectors of the caller
+     * @param formatter
+     *            current formatter
+     * @param propertiesAppended
+     *            true, if the properties of the mixin calls were already appended
+     */
+    void appendMixinsTo( String[] parentSelector, CssFormatter formatter, boolean propertiesAppended ) {
+        parseBody();
         for( Formattable prop : properties ) {
             switch( prop.getType()) {
                 case MIXIN:
-                    ((Mixin)prop).appendSubRules( parentSelector, formatter );
+                    ((Mixin)prop).appendSubRules( parentSelector, formatter, propertiesAppended );
                     break;
                 case CSS_AT_RULE:
                 case COMMENT:
@@ -238,7 +366,16 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
         }
     }
 
-    void appendPropertiesTo( CssFormatter formatter ) {
+    /**
+     * Append the properties of this rule including the properties of inline rules and mixin calls.
+     * 
+     * @param formatter
+     *            current formatter
+     * @param subRules
+     *            true, if the sub rules of the mixin calls are appended later
+     */
+    void appendPropertiesTo( CssFormatter formatter, boolean subRules ) {
+        parseBody();
         for( Formattable prop : properties ) {
             switch( prop.getType() ) {
                 case Formattable.RULE:
@@ -246,10 +383,13 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
                     // inline rules
                     if( rule.isValidCSS( formatter ) && rule.isInlineRule( formatter) ) {
                         formatter.addVariables( rule.variables );
-                        rule.appendPropertiesTo( formatter );
+                        rule.appendPropertiesTo( formatter, false );
                         formatter.removeVariables( rule.variables );
                     }
                     break;
+                case MIXIN:
+                    ((Mixin)prop).appendTo( formatter, subRules );
+                    break;
                 default:
                     prop.appendTo( formatter );
             }
@@ -326,7 +466,7 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
             }
             return NO_MATCH;
         } catch( LessException ex ) {
-            ex.addPosition( filename, line, column );
+            ex.addPosition( getFileName(), getLine(), getColumn() );
             throw ex;
         }
     }
@@ -335,11 +475,31 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
         return selectors;
     }
 
-    public HashMap<String, Expression> getVariables() {
+    /**
+     * Get a selector with the values of the variables for its placeholders.
+     * 
+     * @param idx
+     *            the index of the selector
+     * @param formatter
+     *            current formatter
+     * @return the selector
+     */
+    String getSelector( int idx, CssFormatter formatter ) {
+        return templates == null || templates[idx] == null ? selectors[idx] : templates[idx].toString( formatter, this );
+    }
+
+    /**
+     * Get the variables of this rule.
+     * 
+     * @return the variables or null if there are no variables
+     */
+    HashMap<String, Expression> getVariables() {
+        parseBody();
         return variables;
     }
 
-    List<Rule> getSubrules() {
+    Rule[] getSubrules() {
+        parseBody();
         return subrules;
     }
 
@@ -351,6 +511,7 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
      * @return the mixin or null
      */
     List<Rule> getMixin( String name ) {
+        parseBody();
         ArrayList<Rule> rules = null;
         for( Rule rule : subrules ) {
             for( String sel : rule.selectors ) {
@@ -396,6 +557,7 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
                 formatter.addVariables( mixinParameters );
             }
 
+            countGuard( formatter );
             matching = guard.booleanValue( formatter );
 
             // use XOR to invert if necessary
@@ -422,14 +584,27 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
         if( params == null ) {
             if( guard != null ) {
                 //CSS Guards
-                guard = ValueExpression.eval( formatter, guard );
-                return guard.booleanValue( formatter );
+                countGuard( formatter );
+                return ValueExpression.eval( formatter, guard ).booleanValue( formatter );
             }
             return true;
         }
         return false;
     }
 
+    /**
+     * Count the evaluation of a guard if statistics are enabled.
+     * 
+     * @param formatter
+     *            current formatter
+     */
+    private static void countGuard( CssFormatter formatter ) {
+        CompileStats stats = formatter.getStats();
+        if( stats != null ) {
+            stats.guardEvaluation();
+        }
+    }
+
     boolean isInlineRule( CssFormatter formatter ) {
         if( selectors.length == 1 && selectors[0].equals( "&" ) ) {
             return hasOnlyInlineProperties( formatter );
@@ -438,6 +613,7 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
     }
 
     boolean hasOnlyInlineProperties( CssFormatter formatter ) {
+        parseBody();
         for( Formattable prop : properties ) {
             if( prop instanceof Mixin ) {
                 return false;
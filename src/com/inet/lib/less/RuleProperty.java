@@ -33,9 +33,9 @@ package com.inet.lib.less;
  */
 class RuleProperty implements Formattable {
 
-    private String     name;
+    private Interpolation name;
 
-    private Expression value;
+    private Expression    value;
 
     /**
      * Create a new property.
@@ -46,7 +46,7 @@ class RuleProperty implements Formattable {
      *            the value
      */
     RuleProperty( String name, Expression value ) {
-        this.name = name;
+        this.name = Interpolation.parse( name, 0 );
         this.value = value;
     }
 
@@ -63,6 +63,13 @@ class RuleProperty implements Formattable {
      */
     @Override
     public void appendTo( CssFormatter formatter ) {
-        formatter.appendProperty( name, value );
+        OutputAnalysis analysis = formatter.getOutputAnalysis();
+        if( analysis == null ) {
+            formatter.appendProperty( name, value );
+        } else {
+            int size = formatter.getOutputSize();
+            formatter.appendProperty( name, value );
+            analysis.property( (LessObject)value, formatter.getOutputSize() - size );
+        }
     }
 }
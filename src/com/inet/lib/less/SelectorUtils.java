@@ -26,116 +26,72 @@
  */
 package com.inet.lib.less;
 
+import java.util.Arrays;
+
 /**
  * Some utilities methods.
  */
 class SelectorUtils {
 
+    /**
+     * Merge the selectors of a nested rule with the selectors of the parent rule. A selector without an ampersand is
+     * appended to every parent selector. Every ampersand is replaced with every parent selector, with multiple
+     * ampersands the cross product is created.
+     * 
+     * @param mainSelector
+     *            the selectors of the parent rule
+     * @param base
+     *            the selectors of the nested rule
+     * @return the new selectors
+     */
     static String[] merge( String[] mainSelector, String[] base ) {
         int count = 0;
+        int length = mainSelector.length;
 
         // counting the & characters and calculate the resulting selectors
         int[] counts = new int[base.length];
         for( int j = 0; j < base.length; j++ ) {
             String selector = base[j];
-            int andCount = 0;
-            int idx = -1;
-            while( (idx = selector.indexOf( '&', idx + 1 )) >= 0 ) {
-                andCount++;
+            int combinations = length;
+            int idx = selector.indexOf( '&' );
+            while( idx >= 0 && (idx = selector.indexOf( '&', idx + 1 )) >= 0 ) {
+                combinations *= length;
             }
-            count += counts[j] = (int)Math.pow( mainSelector.length, Math.max( 1, andCount ) );
+            count += counts[j] = combinations;
         }
 
         String[] sel = new String[count];
+        StringBuilder builder = new StringBuilder();
+        int[] ands = new int[8];
         for( int j = 0, t = 0; j < base.length; j++ ) {
             String selector = base[j];
-            int idx = selector.lastIndexOf( '&' );
-            if( idx < 0 ) {
-                for( int m = 0; m < mainSelector.length; m++ ) {
-                    sel[t++] = mainSelector[m] + ' ' + selector;
+            int andCount = 0;
+            for( int idx = -1; (idx = selector.indexOf( '&', idx + 1 )) >= 0; ) {
+                if( andCount == ands.length ) {
+                    ands = Arrays.copyOf( ands, 2 * andCount );
                 }
-            } else {
-                int off = t;
-                count = counts[j];
-                do {
-                    int a = (t - off);
-                    int idx2 = idx;
-                    selector = base[j];
-                    do {
-                        int x = a % mainSelector.length;
-                        selector = selector.substring( 0, idx2 ) + mainSelector[x] + selector.substring( idx2 + 1 );
-                        a /= mainSelector.length;
-                    } while( (idx2 = selector.lastIndexOf( '&', idx2 - 1 )) >= 0 );
-                    sel[t++] = selector;
-                } while( (t - off) < count );
+                ands[andCount++] = idx;
             }
-        }
-        return sel;
-    }
-
-    static void appendToWithPlaceHolder( CssFormatter formatter, String str, int i, LessObject caller ) {
-        int appendIdx = 0;
-        char quote = 0;
-        for( ; i < str.length(); i++ ) {
-            char ch = str.charAt( i );
-            switch( ch ) {
-                case '\"':
-                case '\'':
-                    if( quote == 0 ) {
-                        quote = ch;
-                    } else {
-                        quote = 0;
-                    }
-                    break;
-                case '@':
-                    String name;
-                    int nextIdx;
-                    if( str.length() > i + 1 && str.charAt( i + 1 ) == '{' ) {
-                        nextIdx = str.indexOf( '}', i );
-                        name = '@' + str.substring( i + 2, nextIdx );
-                        nextIdx++;
-                    } else {
-                        if( quote != 0 ) {
-                            break;
-                        }
-                        LOOP: for( nextIdx = i + 1; nextIdx < str.length(); nextIdx++ ) {
-                            ch = str.charAt( nextIdx );
-                            switch( ch ) {
-                                case ' ':
-                                case ')':
-                                case ',':
-                                case '\"':
-                                case '\'':
-                                    break LOOP;
-                            }
-                        }
-                        name = str.substring( i, nextIdx );
-                    }
-
-                    formatter.append( str.substring( appendIdx, i ) );
-                    appendIdx = nextIdx;
-
-                    Expression exp = formatter.getVariable( name );
-                    if( exp == null ) {
-                        throw caller.createException( "Undefine Variable: " + name );
+            if( andCount == 0 ) {
+                for( int m = 0; m < length; m++ ) {
+                    builder.setLength( 0 );
+                    sel[t++] = builder.append( mainSelector[m] ).append( ' ' ).append( selector ).toString();
+                }
+            } else {
+                // the last ampersand change the fastest
+                for( int a = 0; a < counts[j]; a++ ) {
+                    builder.setLength( 0 );
+                    int divisor = counts[j];
+                    int start = 0;
+                    for( int i = 0; i < andCount; i++ ) {
+                        divisor /= length;
+                        builder.append( selector, start, ands[i] ).append( mainSelector[(a / divisor) % length] );
+                        start = ands[i] + 1;
                     }
-                    formatter.setInineMode( true );
-                    exp.appendTo( formatter );
-                    formatter.setInineMode( false );
-
-                    break;
+                    sel[t++] = builder.append( selector, start, selector.length() ).toString();
+                }
             }
         }
-        formatter.append( str.substring( appendIdx ) );
-    }
-
-    static String replacePlaceHolder( CssFormatter formatter, String str, LessObject caller ) {
-        int pos = str.startsWith( "@{" ) ? 0 : str.indexOf( "@", 1 );
-        if( pos >= 0 ) {
-            formatter.addOutput();
-            SelectorUtils.appendToWithPlaceHolder( formatter, str, pos, caller );
-            return formatter.releaseOutput();
-        }
-        return str;
+        return sel;
     }
 }
@@ -0,0 +1,148 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A source map in the format version 3 that maps the CSS output to the less sources. Set an instance with
+ * {@link LessOptions#setSourceMap(SourceMap)} before compiling. The content is replaced with every compilation, so an
+ * instance should not be shared between concurrent compilations.
+ */
+public class SourceMap {
+
+    private String       file;
+
+    private List<String> sources  = Collections.emptyList();
+
+    private String       mappings = "";
+
+    /**
+     * Get the name of the generated CSS file.
+     * 
+     * @return the name or null
+     */
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * Set the name of the generated CSS file that is written in the source map. Default is null.
+     * 
+     * @param file
+     *            the name or null
+     */
+    public void setFile( String file ) {
+        this.file = file;
+    }
+
+    /**
+     * Get the names of the less sources. The main file is named like the last path segment of the base URL. Imported
+     * files are named with the path relative to the main file.
+     * 
+     * @return the sources
+     */
+    public List<String> getSources() {
+        return sources;
+    }
+
+    /**
+     * Get the Base64 VLQ encoded mappings.
+     * 
+     * @return the mappings
+     */
+    public String getMappings() {
+        return mappings;
+    }
+
+    /**
+     * Set the result of a compilation.
+     * 
+     * @param sources
+     *            the names of the sources
+     * @param mappings
+     *            the encoded mappings
+     */
+    void set( List<String> sources, String mappings ) {
+        this.sources = Collections.unmodifiableList( sources );
+        this.mappings = mappings;
+    }
+
+    /**
+     * Get the source map as JSON.
+     * 
+     * @return the JSON data
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append( "{\"version\":3," );
+        if( file != null ) {
+            builder.append( "\"file\":" );
+            appendString( builder, file );
+            builder.append( ',' );
+        }
+        builder.append( "\"sources\":[" );
+        for( int i = 0; i < sources.size(); i++ ) {
+            if( i > 0 ) {
+                builder.append( ',' );
+            }
+            appendString( builder, sources.get( i ) );
+        }
+        builder.append( "],\"names\":[],\"mappings\":\"" ).append( mappings ).append( "\"}" );
+        return builder.toString();
+    }
+
+    /**
+     * Append a JSON string.
+     * 
+     * @param builder
+     *            the target
+     * @param str
+     *            the string value
+     */
+    private static void appendString( StringBuilder builder, String str ) {
+        builder.append( '"' );
+        for( int i = 0; i < str.length(); i++ ) {
+            char ch = str.charAt( i );
+            switch( ch ) {
+                case '"':
+                case '\\':
+                    builder.append( '\\' ).append( ch );
+                    break;
+                default:
+                    if( ch < ' ' ) {
+                        builder.append( String.format( "\\u%04x", (int)ch ) );
+                    } else {
+                        builder.append( ch );
+                    }
+            }
+        }
+        builder.append( '"' );
+    }
+}
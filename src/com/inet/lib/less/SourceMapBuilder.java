@@ -0,0 +1,402 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Record the less positions of the formatted output and encode it as source map. While formatting the positions are
+ * saved with the offset in the output buffer of the CSS block. While writing the results the offsets are translated
+ * into lines and columns of the final output and directly encoded.
+ */
+class SourceMapBuilder {
+
+    private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    /**
+     * The offset of a mapping for the selectors that are written before the content of a block.
+     */
+    private static final int    SELECTORS = -1;
+
+    /**
+     * The mappings of a single output buffer.
+     */
+    private static class Mappings {
+
+        private int[]    offsets   = new int[8];
+
+        private String[] files     = new String[8];
+
+        private int[]    lines     = new int[8];
+
+        private int[]    columns   = new int[8];
+
+        private int      size;
+
+        void add( int offset, String file, int line, int column ) {
+            if( size == offsets.length ) {
+                offsets = Arrays.copyOf( offsets, size * 2 );
+                files = Arrays.copyOf( files, size * 2 );
+                lines = Arrays.copyOf( lines, size * 2 );
+                columns = Arrays.copyOf( columns, size * 2 );
+            }
+            offsets[size] = offset;
+            files[size] = file;
+            lines[size] = line;
+            columns[size++] = column;
+        }
+    }
+
+    private final IdentityHashMap<StringBuilder, Mappings> blocks        = new IdentityHashMap<>();
+
+    private StringBuilder                                  lastOutput;
+
+    private Mappings                                       lastMappings;
+
+    private final String                                   mainSource;
+
+    private final URL                                      baseURL;
+
+    private final Map<String, URL>                         fileURLs;
+
+    private final StringBuilder                            mappings      = new StringBuilder();
+
+    private final ArrayList<String>                        sources       = new ArrayList<>();
+
+    private final HashMap<String, Integer>                 sourceIndexes = new HashMap<>();
+
+    private final IdentityHashMap<String, Integer>         fileIndexes   = new IdentityHashMap<>();
+
+    private int                                            scanPos, line, lineStart;
+
+    private int                                            prevLine, prevColumn, prevSource, prevSourceLine, prevSourceColumn;
+
+    private boolean                                        hasSegment;
+
+    /**
+     * Create a new instance.
+     * 
+     * @param mainSource
+     *            the name of the compiled main file
+     * @param baseURL
+     *            the URL of the main file, the source map is located in the same directory
+     * @param fileURLs
+     *            the resolved URLs of the imported files by the file name instance of the parsed objects
+     */
+    SourceMapBuilder( String mainSource, URL baseURL, Map<String, URL> fileURLs ) {
+        this.mainSource = mainSource;
+        this.baseURL = baseURL;
+        this.fileURLs = fileURLs;
+    }
+
+    /**
+     * Get the mappings of an output buffer.
+     * 
+     * @param output
+     *            the buffer
+     * @return the mappings
+     */
+    private Mappings get( StringBuilder output ) {
+        if( output != lastOutput ) {
+            Mappings mappings = blocks.get( output );
+            if( mappings == null ) {
+                blocks.put( output, mappings = new Mappings() );
+            }
+            lastOutput = output;
+            lastMappings = mappings;
+        }
+        return lastMappings;
+    }
+
+    /**
+     * Map the current end of an output buffer to a less position.
+     * 
+     * @param output
+     *            the buffer of a CSS block
+     * @param obj
+     *            the object with the less position
+     */
+    void add( StringBuilder output, LessObject obj ) {
+        get( output ).add( output.length(), obj.getFileName(), obj.getLine(), obj.getColumn() );
+    }
+
+    /**
+     * Map the selectors of a new CSS block to a less position.
+     * 
+     * @param output
+     *            the buffer of the CSS block
+     * @param rule
+     *            the rule with the less position
+     */
+    void addSelectors( StringBuilder output, LessObject rule ) {
+        Mappings mappings = get( output );
+        if( mappings.size == 0 ) {
+            mappings.add( SELECTORS, rule.getFileName(), rule.getLine(), rule.getColumn() );
+        }
+    }
+
+    /**
+     * Add the mappings of another builder, for example of a parallel formatted chunk.
+     * 
+     * @param other
+     *            the other builder
+     */
+    void addAll( SourceMapBuilder other ) {
+        blocks.putAll( other.blocks );
+    }
+
+    /**
+     * Move the mappings of a block that was appended to another block.
+     * 
+     * @param target
+     *            the buffer with the appended content
+     * @param source
+     *            the appended buffer
+     * @param shift
+     *            the length of the target before the content was appended
+     */
+    void moveTo( StringBuilder target, StringBuilder source, int shift ) {
+        Mappings from = blocks.remove( source );
+        if( from != null ) {
+            lastOutput = null;
+            Mappings to = get( target );
+            for( int i = 0; i < from.size; i++ ) {
+                if( from.offsets[i] != SELECTORS ) {
+                    to.add( from.offsets[i] + shift, from.files[i], from.lines[i], from.columns[i] );
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove the mappings of deleted content.
+     * 
+     * @param output
+     *            the buffer of a CSS block
+     * @param start
+     *            the start of the deleted range
+     * @param end
+     *            the end of the deleted range
+     */
+    void delete( StringBuilder output, int start, int end ) {
+        Mappings mappings = blocks.get( output );
+        if( mappings != null ) {
+            int count = 0;
+            for( int i = 0; i < mappings.size; i++ ) {
+                int offset = mappings.offsets[i];
+                if( offset < start || offset >= end ) {
+                    mappings.offsets[count] = offset >= end ? offset - (end - start) : offset;
+                    mappings.files[count] = mappings.files[i];
+                    mappings.lines[count] = mappings.lines[i];
+                    mappings.columns[count++] = mappings.columns[i];
+                }
+            }
+            mappings.size = count;
+        }
+    }
+
+    /**
+     * Encode the mappings of a block that was written to the final output.
+     * 
+     * @param target
+     *            the final output
+     * @param selectorStart
+     *            the start of the selectors in the final output
+     * @param content
+     *            the buffer with the content of the block
+     * @param contentStart
+     *            the start of the content in the final output
+     */
+    void writeBlock( CharSequence target, int selectorStart, StringBuilder content, int contentStart ) {
+        Mappings mappings = blocks.get( content );
+        if( mappings != null ) {
+            int length = content.length();
+            for( int i = 0; i < mappings.size; i++ ) {
+                int offset = mappings.offsets[i];
+                if( offset < length ) {
+                    segment( target, offset == SELECTORS ? selectorStart : contentStart + offset, mappings.files[i], mappings.lines[i], mappings.columns[i] );
+                }
+            }
+        }
+    }
+
+    /**
+     * Notify that the final output was written to a stream and is cleared now. The following positions are relative
+     * to the cleared output.
+     * 
+     * @param target
+     *            the final output before it is cleared
+     */
+    void flushed( CharSequence target ) {
+        for( ; scanPos < target.length(); scanPos++ ) {
+            if( target.charAt( scanPos ) == '\n' ) {
+                line++;
+                lineStart = scanPos + 1;
+            }
+        }
+        lineStart -= scanPos;
+        scanPos = 0;
+    }
+
+    /**
+     * Encode a single segment.
+     * 
+     * @param target
+     *            the final output
+     * @param pos
+     *            the offset in the final output
+     * @param file
+     *            the less file name or null for the main file
+     * @param lessLine
+     *            the line in the less file
+     * @param lessColumn
+     *            the column in the less file
+     */
+    private void segment( CharSequence target, int pos, String file, int lessLine, int lessColumn ) {
+        if( pos < scanPos ) {
+            return; // only ascending positions are valid
+        }
+        for( ; scanPos < pos; scanPos++ ) {
+            if( target.charAt( scanPos ) == '\n' ) {
+                line++;
+                lineStart = scanPos + 1;
+            }
+        }
+        if( line > prevLine ) {
+            for( ; prevLine < line; prevLine++ ) {
+                mappings.append( ';' );
+            }
+            prevColumn = 0;
+        } else if( hasSegment ) {
+            mappings.append( ',' );
+        }
+        hasSegment = true;
+
+        int column = pos - lineStart;
+        int source = sourceIndex( file );
+        int sourceLine = Math.max( 0, lessLine - 1 );
+        int sourceColumn = lessColumn;
+        vlq( column - prevColumn );
+        vlq( source - prevSource );
+        vlq( sourceLine - prevSourceLine );
+        vlq( sourceColumn - prevSourceColumn );
+        prevColumn = column;
+        prevSource = source;
+        prevSourceLine = sourceLine;
+        prevSourceColumn = sourceColumn;
+    }
+
+    /**
+     * Get the index of a file in the sources. Files with equal names in different directories are different sources.
+     * 
+     * @param file
+     *            the less file name or null for the main file
+     * @return the index
+     */
+    private int sourceIndex( String file ) {
+        Integer index = fileIndexes.get( file );
+        if( index == null ) {
+            String name = sourceName( file );
+            index = sourceIndexes.get( name );
+            if( index == null ) {
+                index = sources.size();
+                sources.add( name );
+                sourceIndexes.put( name, index );
+            }
+            fileIndexes.put( file, index );
+        }
+        return index;
+    }
+
+    /**
+     * Get the name of a file in the sources. It is the path of the resolved URL relative to the main file.
+     * 
+     * @param file
+     *            the less file name or null for the main file
+     * @return the name
+     */
+    private String sourceName( String file ) {
+        if( file == null ) {
+            return mainSource;
+        }
+        URL url = fileURLs == null ? null : fileURLs.get( file );
+        if( url == null ) {
+            return file;
+        }
+        if( baseURL == null || !url.getProtocol().equals( baseURL.getProtocol() ) || !String.valueOf( url.getAuthority() ).equals( String.valueOf( baseURL.getAuthority() ) ) ) {
+            return url.toString();
+        }
+        String basePath = baseURL.getPath();
+        String path = url.getPath();
+        int start = 0; // after the last common directory
+        for( int i = 0; i < basePath.length() && i < path.length() && basePath.charAt( i ) == path.charAt( i ); i++ ) {
+            if( path.charAt( i ) == '/' ) {
+                start = i + 1;
+            }
+        }
+        StringBuilder builder = new StringBuilder();
+        for( int i = start; i < basePath.length(); i++ ) {
+            if( basePath.charAt( i ) == '/' ) {
+                builder.append( "../" );
+            }
+        }
+        return builder.append( path, start, path.length() ).toString();
+    }
+
+    /**
+     * Append a value as Base64 VLQ.
+     * 
+     * @param value
+     *            the value
+     */
+    private void vlq( int value ) {
+        int vlq = value < 0 ? ((-value) << 1) | 1 : value << 1;
+        do {
+            int digit = vlq & 31;
+            vlq >>>= 5;
+            if( vlq > 0 ) {
+                digit |= 32;
+            }
+            mappings.append( BASE64[digit] );
+        } while( vlq > 0 );
+    }
+
+    /**
+     * Write the encoded result to the public source map.
+     * 
+     * @param sourceMap
+     *            the target
+     */
+    void writeTo( SourceMap sourceMap ) {
+        sourceMap.set( sources, mappings.toString() );
+    }
+}
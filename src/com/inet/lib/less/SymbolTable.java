@@ -0,0 +1,128 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2015 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+/**
+ * A table of names for a single compile. Equal names from the parser share one String instance. A name that is
+ * already in the table can be looked up from a character buffer without any allocation.
+ */
+final class SymbolTable {
+
+    private String[] symbols = new String[256];
+
+    private int[]    hashes  = new int[256];
+
+    private int      size;
+
+    /**
+     * Get the shared String for the given characters.
+     * 
+     * @param chars
+     *            the character buffer
+     * @param start
+     *            the start index, inclusive
+     * @param end
+     *            the end index, exclusive
+     * @return the shared String
+     */
+    String intern( CharSequence chars, int start, int end ) {
+        if( start == end ) {
+            return "";
+        }
+        int hash = 0;
+        for( int i = start; i < end; i++ ) {
+            hash = 31 * hash + chars.charAt( i );
+        }
+        int mask = symbols.length - 1;
+        int idx = (hash ^ (hash >>> 16)) & mask;
+        for( ;; ) {
+            String symbol = symbols[idx];
+            if( symbol == null ) {
+                symbol = chars.subSequence( start, end ).toString();
+                symbols[idx] = symbol;
+                hashes[idx] = hash;
+                if( ++size > symbols.length / 2 ) {
+                    grow();
+                }
+                return symbol;
+            }
+            if( hashes[idx] == hash && equals( symbol, chars, start, end ) ) {
+                return symbol;
+            }
+            idx = (idx + 1) & mask;
+        }
+    }
+
+    /**
+     * Get the shared String for the given string.
+     * 
+     * @param str
+     *            the string
+     * @return the shared String
+     */
+    String intern( String str ) {
+        return intern( str, 0, str.length() );
+    }
+
+    /**
+     * Compare a symbol with a range of characters.
+     */
+    private static boolean equals( String symbol, CharSequence chars, int start, int end ) {
+        if( symbol.length() != end - start ) {
+            return false;
+        }
+        for( int i = 0; start < end; ) {
+            if( symbol.charAt( i++ ) != chars.charAt( start++ ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Double the size of the hash table.
+     */
+    private void grow() {
+        String[] oldSymbols = symbols;
+        int[] oldHashes = hashes;
+        symbols = new String[oldSymbols.length * 2];
+        hashes = new int[symbols.length];
+        int mask = symbols.length - 1;
+        for( int i = 0; i < oldSymbols.length; i++ ) {
+            String symbol = oldSymbols[i];
+            if( symbol != null ) {
+                int hash = oldHashes[i];
+                int idx = (hash ^ (hash >>> 16)) & mask;
+                while( symbols[idx] != null ) {
+                    idx = (idx + 1) & mask;
+                }
+                symbols[idx] = symbol;
+                hashes[idx] = hash;
+            }
+        }
+    }
+}
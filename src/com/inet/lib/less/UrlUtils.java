@@ -26,22 +26,25 @@
  */
 package com.inet.lib.less;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Nonnull;
-import javax.xml.bind.DatatypeConverter;
 
 /**
  * Implementation of the function svg-Gradient and other URL utils.
  */
 class UrlUtils {
 
+    /**
+     * The maximum count of cached gradients per compilation.
+     */
+    private static final int SVG_GRADIENT_CACHE_SIZE = 1024;
+
     /**
      * Remove a quote if exists.
      * @param str a string 
@@ -60,7 +63,8 @@ class UrlUtils {
     }
 
     /**
-     * Implementation of the function svg-Gradient
+     * Implementation of the function svg-Gradient. The result is a pure function of the direction and the evaluated
+     * color stops. It is cached for the current compilation.
      */
     static void svgGradient( CssFormatter formatter, List<Expression> parameters ) {
         if( parameters.size() < 3 ) {
@@ -92,9 +96,10 @@ class UrlUtils {
             default:
                 throw new LessException( "error evaluating function `svg-gradient`: svg-gradient direction must be 'to bottom', 'to right', 'to bottom right', 'to top right' or 'ellipse at center'" );
         }
-        StringBuilder builder = new StringBuilder( "<?xml version=\"1.0\" ?><svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\" width=\"100%\" height=\"100%\" viewBox=\"0 0 1 1\" preserveAspectRatio=\"none\">" );
-        builder.append( '<' ).append( gradientType ).append( "Gradient id=\"gradient\" gradientUnits=\"userSpaceOnUse\" " ).append( gradientDirection ).append( '>' );
-
+        int count = parameters.size() - 1;
+        double[] colors = new double[count];
+        double[] positions = new double[count];
+        StringBuilder key = new StringBuilder( direction );
         for( int i = 1; i < parameters.size(); i++ ) {
             Expression param = parameters.get( i );
             double color;
@@ -118,6 +123,46 @@ class UrlUtils {
                 color = getColor( param, formatter );
                 position = (i - 1) / (parameters.size() - 2.0);
             }
+            colors[i - 1] = color;
+            positions[i - 1] = position;
+            key.append( ';' ).append( Double.doubleToRawLongBits( color ) ).append( ' ' ).append( position );
+        }
+
+        Map<String, String> cache = formatter.getSvgGradientCache();
+        String result = cache.get( key.toString() );
+        if( result == null ) {
+            result = svgGradient( formatter, gradientType, gradientDirection, rectangleDimension, colors, positions );
+            if( cache.size() < SVG_GRADIENT_CACHE_SIZE ) {
+                cache.put( key.toString(), result );
+            }
+        }
+        formatter.append( result );
+    }
+
+    /**
+     * Create the url with the SVG data of a gradient.
+     * 
+     * @param formatter
+     *            current formatter
+     * @param gradientType
+     *            linear or radial
+     * @param gradientDirection
+     *            the attributes for the direction
+     * @param rectangleDimension
+     *            the attributes of the rectangle
+     * @param colors
+     *            the colors of the stops
+     * @param positions
+     *            the positions of the stops in the range 0 to 1
+     * @return the url with the Base64 encoded SVG data
+     */
+    private static String svgGradient( CssFormatter formatter, String gradientType, String gradientDirection, String rectangleDimension, double[] colors, double[] positions ) {
+        StringBuilder builder = new StringBuilder( "<?xml version=\"1.0\" ?><svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\" width=\"100%\" height=\"100%\" viewBox=\"0 0 1 1\" preserveAspectRatio=\"none\">" );
+        builder.append( '<' ).append( gradientType ).append( "Gradient id=\"gradient\" gradientUnits=\"userSpaceOnUse\" " ).append( gradientDirection ).append( '>' );
+
+        for( int i = 0; i < colors.length; i++ ) {
+            double color = colors[i];
+            double position = positions[i];
             builder.append( "<stop offset=\"" );
             position *= 100;
             if( position == (int)position ) {
@@ -140,9 +185,7 @@ class UrlUtils {
 
         byte[] bytes = builder.toString().getBytes( StandardCharsets.UTF_8 );
 
-        formatter.append( "url('data:image/svg+xml;base64," );
-        formatter.append( DatatypeConverter.printBase64Binary( bytes ) );
-        formatter.append( "\')" );
+        return "url('data:image/svg+xml;base64," + ResourceCache.encodeBase64( bytes ) + "')";
     }
 
     /**
@@ -157,79 +200,39 @@ class UrlUtils {
         throw new LessException( "Not a color: " + param );
     }
 
+    /**
+     * Write the function data-uri. Resources that are not smaller as the maximum size of the formatter are written as
+     * normal url.
+     * 
+     * @param formatter
+     *            current formatter
+     * @param relativeURL
+     *            the url of the less file with the function
+     * @param urlString
+     *            the url of the resource
+     * @param type
+     *            the mime type or null if it should be guessed
+     * @throws IOException
+     *             if any I/O error occur
+     */
     static void dataUri( CssFormatter formatter, String relativeURL, final String urlString, String type ) throws IOException {
         URL url = new URL( formatter.getBaseURL(), relativeURL );
         String urlStr = removeQuote( urlString );
         url = new URL( url, urlStr );
-        InputStream input;
+        ResourceCache.Resource resource;
         try {
-            input = url.openStream();
+            resource = formatter.getResourceCache().get( url, formatter.getDataUriMaxSize(), formatter.getListener() );
         } catch( Exception e ) {
             formatter.append( "url(" ).append( urlString ).append( ')' );
             return;
         }
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-
-        int count;
-        byte[] data = new byte[16384];
-
-        while( (count = input.read( data, 0, data.length )) > 0 ) {
-            buffer.write( data, 0, count );
-        }
-
-        byte[] bytes = buffer.toByteArray();
-        if( type == null ) {
-            switch( urlStr.substring( urlStr.lastIndexOf( '.' ) + 1 ) ) {
-                case "gif": 
-                    type = "image/gif;base64";
-                    break;
-                case "png": 
-                    type = "image/png;base64";
-                    break;
-                case "jpg":
-                case "jpeg":
-                    type = "image/jpeg;base64";
-                    break;
-                default: 
-                    type = "text/html";
-            }
-        } else {
-            type = removeQuote( type );
-        }
-
-        if( bytes.length >= 32 * 1024 ) {
+        if( !resource.isSmaller( formatter.getDataUriMaxSize() ) ) {
             formatter.append( "url(" ).append( urlString ).append( ')' );
-        } else {
-            if( type.endsWith( "base64" ) ) {
-                formatter.append( "url(\"data:" ).append( type ).append( ',' );
-                formatter.append( DatatypeConverter.printBase64Binary( bytes ) );
-                formatter.append( "\")" );
-            } else {
-                formatter.append( "url(\"data:" ).append( type ).append( ',' );
-                appendEncode( formatter, bytes );
-                formatter.append( "\")" );
-            }
-        }
-    }
-
-    private static void appendEncode( CssFormatter formatter, byte[] bytes ) {
-        for( byte b : bytes ) {
-            if ((b >= 'a' && b <= 'z' ) || (b >= 'A' && b <= 'Z' ) || (b >= '0' && b <= '9' )) {
-                formatter.append( (char )b );
-            } else {
-                switch( b ) {
-                    case '-':
-                    case '_':
-                    case '*':
-                    case '.':
-                        formatter.append( (char )b );
-                        break;
-                    default:
-                        formatter.append( '%' );
-                        formatter.append( Character.toUpperCase( Character.forDigit((b >> 4) & 0xF, 16) ) );
-                        formatter.append( Character.toUpperCase( Character.forDigit(b & 0xF, 16) ) );
-                }
-            }
+            return;
         }
+        type = type == null ? resource.getMimeType() : removeQuote( type );
+        formatter.append( "url(\"data:" ).append( type ).append( ',' );
+        formatter.append( type.endsWith( "base64" ) ? resource.getBase64() : resource.getEncoded() );
+        formatter.append( "\")" );
     }
 }
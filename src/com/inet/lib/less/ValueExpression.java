@@ -33,30 +33,86 @@ import java.text.ParsePosition;
  */
 class ValueExpression extends AbstractExpression {
 
-    private int    type;
+    private volatile int  type;
 
-    private double value;
+    private double        value;
 
-    private String unit;
+    private String        unit;
+
+    /**
+     * The placeholders of a string value, created on first use.
+     */
+    private Interpolation template;
 
     ValueExpression( LessObject reader, String str ) {
         super( reader, str );
     }
 
+    /**
+     * Create an evaluated number, percent or color. The text is only created if requested.
+     * 
+     * @param obj
+     *            another LessObject with parse position
+     * @param type
+     *            the data type
+     * @param value
+     *            the double value
+     * @param unit
+     *            the unit
+     */
+    private ValueExpression( LessObject obj, int type, double value, String unit ) {
+        super( obj, null );
+        this.value = value;
+        this.unit = unit;
+        this.type = type;
+    }
+
+    /**
+     * Evaluate an expression to a constant value. Numbers are passed with its type, value and unit without formatting
+     * and parsing a text. A variable with an already constant value returns the value itself if it is not a string with
+     * placeholders.
+     * 
+     * @param formatter
+     *            current formatter
+     * @param expr
+     *            the expression
+     * @return the constant value
+     */
     public static ValueExpression eval( CssFormatter formatter, Expression expr ) {
         if( expr instanceof ValueExpression ) {
             return (ValueExpression)expr;
         }
+        if( expr.getClass() == VariableExpression.class ) {
+            Expression value = ((VariableExpression)expr).getValue( formatter );
+            if( value instanceof ValueExpression ) {
+                ValueExpression valueEx = (ValueExpression)value;
+                // placeholders of a string must be replaced in the current scope
+                if( valueEx.getDataType( formatter ) != STRING || valueEx.toString().indexOf( '@' ) < 0 ) {
+                    return valueEx;
+                }
+            }
+            expr = value;
+        }
+        if( expr.getClass() == CssFormatter.LazyReturn.class ) {
+            return ((CssFormatter.LazyReturn)expr).getValue( formatter );
+        }
+        int type = expr.getDataType( formatter );
+        switch( type ) {
+            case NUMBER:
+            case PERCENT:
+            case RGBA:
+                return new ValueExpression( (LessObject)expr, type, expr.doubleValue( formatter ), expr.unit( formatter ) );
+        }
         ValueExpression valueEx = new ValueExpression( (LessObject)expr, expr.stringValue( formatter ) );
-        valueEx.type = expr.getDataType( formatter );
         valueEx.unit = expr.unit( formatter );
-        switch( valueEx.type ) {
+        switch( type ) {
             case STRING:
             case BOOLEAN:
                 break; //string is already set
             default:
                 valueEx.value = expr.doubleValue( formatter );
         }
+        valueEx.type = type;
         return valueEx;
     }
 
@@ -73,7 +129,11 @@ class ValueExpression extends AbstractExpression {
                 formatter.appendColor( value, toString() );
                 break;
             case STRING:
-                SelectorUtils.appendToWithPlaceHolder( formatter, toString(), 0, this );
+                Interpolation template = this.template;
+                if( template == null ) {
+                    this.template = template = Interpolation.parse( toString(), 0 );
+                }
+                template.appendTo( formatter, this );
                 break;
             default:
                 super.appendTo( formatter );
@@ -125,9 +185,13 @@ class ValueExpression extends AbstractExpression {
     }
 
     /**
-     * Evaluate the type and value.
+     * Evaluate the type and value. The type is written last so that a concurrent formatter that see a known type also
+     * see the value and unit.
      */
-    private void eval( CssFormatter formatter ) {
+    private synchronized void eval( CssFormatter formatter ) {
+        if( type != UNKNOWN ) {
+            return;
+        }
         try {
             unit = "";
             String str = toString();
@@ -633,4 +697,17 @@ class ValueExpression extends AbstractExpression {
             type = STRING;
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        String str = super.toString();
+        if( str == null ) {
+            // an evaluated number without text, only used for messages
+            str = stringValue( new CssFormatter() );
+        }
+        return str;
+    }
 }
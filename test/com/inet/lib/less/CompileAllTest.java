@@ -0,0 +1,56 @@
+package com.inet.lib.less;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CompileAllTest {
+
+    @Test
+    public void compileAll() throws Exception {
+        List<File> cssFiles = new ArrayList<>();
+        List<LessSource> sources = new ArrayList<>();
+        for( Object[] params : LessTest.params() ) {
+            File lessFile = (File)params[1];
+            File cssFile = (File)params[2];
+            if( cssFile.getName().endsWith( ".css" ) && !lessFile.getParentFile().getName().equals( "compression" )
+                            && !lessFile.getParentFile().getName().equals( "optimize" )
+                            && !lessFile.getParentFile().getName().equals( "mergemedia" ) ) {
+                String lessData = new String( Files.readAllBytes( lessFile.toPath() ), StandardCharsets.UTF_8 );
+                cssFiles.add( cssFile );
+                sources.add( new LessSource( lessFile.toURI().toURL(), lessData ) );
+            }
+        }
+
+        List<LessResult> results = Less.compileAll( sources, new LessOptions() );
+        assertEquals( sources.size(), results.size() );
+        for( int i = 0; i < results.size(); i++ ) {
+            LessResult result = results.get( i );
+            String cssData = new String( Files.readAllBytes( cssFiles.get( i ).toPath() ), StandardCharsets.UTF_8 );
+            assertEquals( sources.get( i ), result.getSource() );
+            assertNull( result.getException() );
+            assertEquals( cssFiles.get( i ).getPath(), cssData, result.getCss() );
+        }
+    }
+
+    @Test
+    public void errorDoesNotBreakBatch() {
+        List<LessSource> sources = new ArrayList<>();
+        sources.add( new LessSource( null, ".a { a: @undefined; }" ) );
+        sources.add( new LessSource( null, ".b { b: 1px; }" ) );
+
+        List<LessResult> results = Less.compileAll( sources, new LessOptions() );
+        assertNotNull( results.get( 0 ).getException() );
+        assertNull( results.get( 0 ).getCss() );
+        assertNull( results.get( 1 ).getException() );
+        assertEquals( ".b {\n  b: 1px;\n}\n", results.get( 1 ).getCss() );
+    }
+}
@@ -0,0 +1,125 @@
+package com.inet.lib.less;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CompileListenerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static class RecordingListener implements CompileListener {
+
+        private final List<String> events = new ArrayList<>();
+
+        private Throwable          error;
+
+        @Override
+        public synchronized void compileStarted( URL baseURL ) {
+            events.add( "started" );
+        }
+
+        @Override
+        public synchronized void compileFinished( URL baseURL, long duration, Throwable error ) {
+            events.add( "finished" );
+            this.error = error;
+        }
+
+        @Override
+        public synchronized void importLoaded( URL url, long chars, long duration ) {
+            events.add( "import " + new File( url.getPath() ).getName() + " " + chars );
+        }
+
+        @Override
+        public synchronized void resourceLoaded( URL url, long bytes, long duration ) {
+            events.add( "resource " + new File( url.getPath() ).getName() + " " + bytes );
+        }
+
+        @Override
+        public synchronized void mixinExpanded( String name, String fileName, int line, long duration ) {
+            events.add( "mixin " + name + " " + line );
+        }
+    }
+
+    private URL write( String name, String content ) throws Exception {
+        File file = new File( folder.getRoot(), name );
+        Files.write( file.toPath(), content.getBytes( StandardCharsets.UTF_8 ) );
+        return file.toURI().toURL();
+    }
+
+    @Test
+    public void events() throws Exception {
+        write( "image.txt", "abc" );
+        write( "part.less", ".m() { a: data-uri('image.txt'); }" );
+        URL baseURL = write( "main.less", "" );
+
+        RecordingListener listener = new RecordingListener();
+        LessOptions options = new LessOptions();
+        options.setListener( listener );
+        options.setMixinThreshold( 0 );
+        Less.compile( baseURL, "@import 'part.less';\n.b {\n .m();\n}", options );
+
+        List<String> expected = new ArrayList<>();
+        expected.add( "started" );
+        expected.add( "import part.less 34" );
+        expected.add( "resource image.txt 3" );
+        expected.add( "mixin .m 3" );
+        expected.add( "finished" );
+        assertEquals( expected, listener.events );
+        assertNull( listener.error );
+    }
+
+    @Test
+    public void oneEventPerCall() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        LessOptions options = new LessOptions();
+        options.setListener( listener );
+        options.setMixinThreshold( 0 );
+        Less.compile( null, ".m() { a: 1; .x { b: 2; } }\n.n() { .m(); }\n.b { .n(); }\n.m();", options );
+
+        List<String> expected = new ArrayList<>();
+        expected.add( "started" );
+        expected.add( "mixin .m 2" );
+        expected.add( "mixin .n 3" );
+        expected.add( "mixin .m 4" );
+        expected.add( "finished" );
+        assertEquals( expected, listener.events );
+    }
+
+    @Test
+    public void threshold() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        LessOptions options = new LessOptions();
+        options.setListener( listener );
+        Less.compile( null, ".m() { a: 1; }\n.b { .m(); }", options );
+        assertEquals( 2, listener.events.size() );
+    }
+
+    @Test
+    public void error() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        LessOptions options = new LessOptions();
+        options.setListener( listener );
+        try {
+            Less.compile( null, ".b { a: @undefined; }", options );
+            fail( "LessException expected" );
+        } catch( LessException ex ) {
+            assertSame( ex, listener.error );
+        }
+        assertEquals( 2, listener.events.size() );
+        assertEquals( "finished", listener.events.get( 1 ) );
+    }
+}
@@ -0,0 +1,86 @@
+package com.inet.lib.less;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CompileStatsTest {
+
+    private static final String LESS = "@a: 10px;\n" //
+                    + ".m(@x) when (@x > 5px) { width: percentage(0.5); height: @x; }\n" //
+                    + ".b { .m(@a); color: fade(red, 50%); }\n" //
+                    + ".c:extend(.b) {}\n";
+
+    @Test
+    public void counters() {
+        LessOptions options = new LessOptions();
+        options.setStats( new CompileStats() );
+        String css = Less.compile( null, LESS, options );
+
+        CompileStats stats = options.getStats();
+        assertEquals( 1, stats.getMixinCalls() );
+        // the guard is evaluated for the properties and for the sub rules of the mixin
+        assertEquals( 2, stats.getGuardEvaluations() );
+        assertTrue( stats.getVariableLookups() > 0 );
+        assertEquals( Long.valueOf( 1 ), stats.getFunctionCalls().get( "percentage" ) );
+        assertEquals( Long.valueOf( 1 ), stats.getFunctionCalls().get( "fade" ) );
+        assertEquals( css.length(), stats.getCharsProduced() );
+        assertTrue( stats.getParseTime() > 0 );
+        assertTrue( stats.getFormatTime() > 0 );
+    }
+
+    @Test
+    public void topLevelCall() {
+        LessOptions options = new LessOptions();
+        options.setStats( new CompileStats() );
+        Less.compile( null, ".m() { .x { a: 1; } }\n.m();\n.b { .m(); }\n", options );
+        assertEquals( 2, options.getStats().getMixinCalls() );
+    }
+
+    @Test
+    public void accumulated() {
+        LessOptions options = new LessOptions();
+        options.setStats( new CompileStats() );
+        String css = Less.compile( null, LESS, options );
+        Less.compile( null, LESS, options );
+        assertEquals( 2, options.getStats().getMixinCalls() );
+        assertEquals( 2 * css.length(), options.getStats().getCharsProduced() );
+    }
+
+    @Test
+    public void functionCallsSnapshot() {
+        LessOptions options = new LessOptions();
+        options.setStats( new CompileStats() );
+        Less.compile( null, LESS, options );
+        Map<String, Long> calls = options.getStats().getFunctionCalls();
+
+        Less.compile( null, LESS, options );
+        assertEquals( Long.valueOf( 1 ), calls.get( "fade" ) );
+        assertEquals( Long.valueOf( 2 ), options.getStats().getFunctionCalls().get( "fade" ) );
+        try {
+            calls.put( "fade", 0L );
+            fail( "modifiable function calls" );
+        } catch( UnsupportedOperationException ex ) {
+            // expected
+        }
+    }
+
+    @Test
+    public void parallel() {
+        LessOptions options = new LessOptions();
+        options.setStats( new CompileStats() );
+        String css = Less.compile( null, LESS, options );
+        CompileStats sequential = options.getStats();
+
+        options.setStats( new CompileStats() );
+        options.setParallel( true );
+        assertEquals( css, Less.compile( null, LESS, options ) );
+        assertEquals( sequential.getMixinCalls(), options.getStats().getMixinCalls() );
+        assertEquals( sequential.getFunctionCalls(), options.getStats().getFunctionCalls() );
+        assertEquals( sequential.getCharsProduced(), options.getStats().getCharsProduced() );
+    }
+}
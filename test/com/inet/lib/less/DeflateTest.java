@@ -0,0 +1,76 @@
+package com.inet.lib.less;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.Test;
+
+public class DeflateTest {
+
+    private static String read( InputStream input ) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int count;
+        while( (count = input.read( buffer )) > 0 ) {
+            out.write( buffer, 0, count );
+        }
+        return new String( out.toByteArray(), StandardCharsets.UTF_8 );
+    }
+
+    private static String largeLess() {
+        StringBuilder less = new StringBuilder( ".m(@i) { width: (@i * 1px); content: \"äöü\"; }\n" );
+        for( int i = 0; i < 1000; i++ ) {
+            less.append( ".a" ).append( i ).append( " { .m(" ).append( i ).append( "); }\n" );
+        }
+        return less.toString();
+    }
+
+    @Test
+    public void gzip() throws Exception {
+        String less = largeLess();
+        LessOptions options = new LessOptions();
+        String css = Less.compile( null, less, options );
+
+        DeflatedCss result = Less.compileGzip( null, less, options );
+        assertEquals( css, read( new GZIPInputStream( new ByteArrayInputStream( result.getData() ) ) ) );
+        assertEquals( css.getBytes( StandardCharsets.UTF_8 ).length, result.getSize() );
+        assertEquals( result.getData().length, result.getCompressedSize() );
+    }
+
+    @Test
+    public void deflateStream() throws Exception {
+        String less = largeLess();
+        LessOptions options = new LessOptions();
+        options.setCompress( true );
+        options.setDeflateLevel( 9 );
+        options.setStats( new CompileStats() );
+        String css = Less.compile( null, less, options );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DeflatedCss result = Less.compileDeflate( null, less, options, out );
+        assertNull( result.getData() );
+        assertEquals( css, read( new InflaterInputStream( new ByteArrayInputStream( out.toByteArray() ) ) ) );
+        assertEquals( out.size(), result.getCompressedSize() );
+        assertEquals( 2 * css.length(), options.getStats().getCharsProduced() );
+    }
+
+    @Test
+    public void sourceMap() throws Exception {
+        String less = largeLess();
+        LessOptions options = new LessOptions();
+        options.setSourceMap( new SourceMap() );
+        Less.compile( null, less, options );
+        String mappings = options.getSourceMap().getMappings();
+
+        options.setSourceMap( new SourceMap() );
+        Less.compileGzip( null, less, options );
+        assertEquals( mappings, options.getSourceMap().getMappings() );
+    }
+}
@@ -1,5 +1,8 @@
 package com.inet.lib.less;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -16,4 +19,51 @@ public class ErrorTest {
             assertEquals( "Unrecognised input", message.substring( 0, message.indexOf( '\n' ) ) );
         }
     }
+
+    /**
+     * A returned variable must not resolve a free variable from a later mixin call.
+     */
+    @Test
+    public void undefinedReturnedVariable() {
+        try {
+            Less.compile( null, ".m1(){@a:@b;} .m2(){@b:local;} .x{.m1();.m2();w:@a;}", false );
+            fail( "LessException expected" );
+        } catch( LessException lex ) {
+            String message = lex.getMessage();
+            assertEquals( "Undefine Variable: @b", message.substring( 0, message.indexOf( '\n' ) ) );
+        }
+    }
+
+    /**
+     * A mixin with exponential calls that would run for a very long time.
+     */
+    private static final String RUNAWAY = ".t(@n) when (@n > 0) { .t(@n - 1); .t(@n - 1); } .a { .t(40); }";
+
+    @Test
+    public void timeout() {
+        LessOptions options = new LessOptions();
+        options.setTimeout( 100 );
+        try {
+            Less.compile( null, RUNAWAY, options );
+            fail( "LessException expected" );
+        } catch( LessException lex ) {
+            String message = lex.getMessage();
+            assertEquals( "Compilation timeout exceeded", message.substring( 0, message.indexOf( '\n' ) ) );
+        }
+    }
+
+    @Test
+    public void cancelAsync() throws Exception {
+        LessOptions options = new LessOptions();
+        Future<String> future = Less.compileAsync( null, RUNAWAY, options );
+        Thread.sleep( 50 );
+        assertTrue( future.cancel( true ) );
+        try {
+            future.get();
+            fail( "CancellationException expected" );
+        } catch( CancellationException ex ) {
+            // expected
+        }
+        assertEquals( ".b {\n  b: 1px;\n}\n", Less.compileAsync( null, ".b { b: 1px; }", options ).get() );
+    }
 }
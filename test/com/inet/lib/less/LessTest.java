@@ -29,6 +29,7 @@ package com.inet.lib.less;
 import static org.junit.Assert.assertEquals;
 
 import java.io.File;
+import java.io.StringReader;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
@@ -36,6 +37,7 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -45,6 +47,8 @@ import org.junit.runners.Parameterized.Parameters;
 @RunWith( Parameterized.class )
 public class LessTest {
 
+    private static final ForkJoinPool POOL = new ForkJoinPool( 4 );
+
     private File lessFile;
     private File cssFile;
 
@@ -86,11 +90,74 @@ public class LessTest {
 
     @Test
     public void compile() throws Exception {
+        assertCompile( new LessOptions() );
+    }
+
+    @Test
+    public void compileParallel() throws Exception {
+        LessOptions options = new LessOptions();
+        options.setParallel( true );
+        assertCompile( options );
+    }
+
+    @Test
+    public void compileLazyMixins() throws Exception {
+        LessOptions options = new LessOptions();
+        options.setLazyMixins( true );
+        assertCompile( options );
+    }
+
+    /**
+     * Split the less data into chunks of the smallest size so that every top level boundary of the samples is used.
+     */
+    @Test
+    public void parseParallelChunks() throws Exception {
+        URI uri = lessFile.toURI();
+        String lessData = new String( Files.readAllBytes( Paths.get( uri ) ), StandardCharsets.UTF_8 );
+
+        LessParser sequential = new LessParser( null, null, null, null );
+        sequential.parse( uri.toURL(), new StringReader( lessData ) );
+        LessParser parallel = new LessParser( null, null, null, null );
+        parallel.parseParallel( uri.toURL(), lessData, POOL, 1 );
+        assertEquals( format( sequential, uri.toURL() ), format( parallel, uri.toURL() ) );
+    }
+
+    /**
+     * Format the result of a parser with the options of the sample folder.
+     * 
+     * @param parser
+     *            the parser with the parsed data
+     * @param baseURL
+     *            the URL of the less file
+     * @return the CSS
+     */
+    private String format( LessParser parser, URL baseURL ) {
+        String folder = lessFile.getParentFile().getName();
+        CssFormatter formatter = cssFile.getName().endsWith( ".css_x" ) || folder.equals( "compression" ) ? new CompressCssFormatter() : new CssFormatter();
+        formatter.setResourceCache( new ResourceCache(), new LessOptions().getDataUriMaxSize() );
+        formatter.setOptimize( folder.equals( "optimize" ) );
+        formatter.setMergeMedia( folder.equals( "mergemedia" ) );
+        parser.parseLazy( formatter );
+        StringBuilder builder = new StringBuilder();
+        formatter.format( parser, baseURL, builder );
+        return builder.toString();
+    }
+
+    /**
+     * Compile the less file with the options of its sample folder and compare it with the expected CSS.
+     * 
+     * @param options
+     *            the options of the test
+     */
+    private void assertCompile( LessOptions options ) throws Exception {
         URI uri = lessFile.toURI();
         String lessData = new String( Files.readAllBytes( Paths.get( uri ) ), StandardCharsets.UTF_8 );
         String cssData = new String( Files.readAllBytes( Paths.get( cssFile.toURI() ) ), StandardCharsets.UTF_8 );
 
-        boolean compress = cssFile.getName().endsWith( ".css_x" ) || lessFile.getParentFile().getName().equals( "compression" );
-        assertEquals( cssData, Less.compile( uri.toURL(), lessData, compress ) );
+        String folder = lessFile.getParentFile().getName();
+        options.setCompress( cssFile.getName().endsWith( ".css_x" ) || folder.equals( "compression" ) );
+        options.setOptimize( folder.equals( "optimize" ) );
+        options.setMergeMedia( folder.equals( "mergemedia" ) );
+        assertEquals( cssData, Less.compile( uri.toURL(), lessData, options ) );
     }
 }
@@ -0,0 +1,80 @@
+package com.inet.lib.less;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class MixinProfileTest {
+
+    private static final String LESS = ".inner() { color: red; }\n" //
+                    + ".outer(@a) when (@a > 0) { .inner(); width: @a; }\n" //
+                    + ".outer(@a) when (@a < 0) { height: @a; }\n" //
+                    + ".b { .outer(1); }\n" //
+                    + ".c { .outer(2); }\n";
+
+    @Test
+    public void profile() {
+        LessOptions options = new LessOptions();
+        options.setMixinProfile( new MixinProfile() );
+        Less.compile( null, LESS, options );
+        MixinProfile profile = options.getMixinProfile();
+
+        List<MixinProfile.Entry> definitions = profile.getDefinitions();
+        assertEquals( 3, definitions.size() );
+        MixinProfile.Entry outer = find( definitions, ".outer", 2 );
+        assertEquals( 2, outer.getCalls() );
+        assertEquals( 0, outer.getGuardRejections() );
+        assertTrue( outer.getTotalTime() >= outer.getSelfTime() );
+        MixinProfile.Entry inner = find( definitions, ".inner", 1 );
+        assertEquals( 2, inner.getCalls() );
+        assertTrue( outer.getOutputBytes() > inner.getOutputBytes() );
+        MixinProfile.Entry rejected = find( definitions, ".outer", 3 );
+        assertEquals( 0, rejected.getCalls() );
+        assertEquals( 2, rejected.getGuardRejections() );
+
+        List<MixinProfile.Entry> callSites = profile.getCallSites();
+        assertEquals( 3, callSites.size() );
+        assertEquals( 1, find( callSites, ".outer", 4 ).getCalls() );
+        assertEquals( 1, find( callSites, ".outer", 4 ).getGuardRejections() );
+        assertEquals( 1, find( callSites, ".outer", 5 ).getCalls() );
+        assertEquals( 2, find( callSites, ".inner", 2 ).getCalls() );
+
+        String folded = profile.getFoldedStacks();
+        assertTrue( folded, folded.contains( ".outer(null:4);.inner(null:2) " ) );
+    }
+
+    @Test
+    public void topLevelCall() {
+        LessOptions options = new LessOptions();
+        options.setMixinProfile( new MixinProfile() );
+        Less.compile( null, ".m(@a) when (@a > 0) { .x { a: @a; } }\n.m(@a) when (@a < 0) { .y { a: @a; } }\n.m(1);\n", options );
+        MixinProfile profile = options.getMixinProfile();
+        assertEquals( 1, find( profile.getDefinitions(), ".m", 1 ).getCalls() );
+        assertEquals( 1, find( profile.getDefinitions(), ".m", 2 ).getGuardRejections() );
+        assertEquals( 1, find( profile.getCallSites(), ".m", 3 ).getCalls() );
+        assertEquals( 1, find( profile.getCallSites(), ".m", 3 ).getGuardRejections() );
+    }
+
+    @Test
+    public void parallel() {
+        LessOptions options = new LessOptions();
+        options.setMixinProfile( new MixinProfile() );
+        options.setParallel( true );
+        Less.compile( null, LESS, options );
+        MixinProfile profile = options.getMixinProfile();
+        assertEquals( 2, find( profile.getDefinitions(), ".outer", 2 ).getCalls() );
+        assertEquals( 3, profile.getCallSites().size() );
+    }
+
+    private static MixinProfile.Entry find( List<MixinProfile.Entry> entries, String name, int line ) {
+        for( MixinProfile.Entry entry : entries ) {
+            if( entry.getName().equals( name ) && entry.getLocation().endsWith( ":" + line ) ) {
+                return entry;
+            }
+        }
+        throw new AssertionError( name + ' ' + line );
+    }
+}
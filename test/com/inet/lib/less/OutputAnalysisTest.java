@@ -0,0 +1,74 @@
+package com.inet.lib.less;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class OutputAnalysisTest {
+
+    private static final String LESS = ".big() { margin: 0; padding: 0; border: none; }\n" //
+                    + ".a { .big(); color: red; }\n" //
+                    + ".b { .big(); color: red; }\n" //
+                    + ".c { width: 1px; }\n";
+
+    @Test
+    public void analysis() {
+        LessOptions options = new LessOptions();
+        options.setOutputAnalysis( new OutputAnalysis() );
+        String css = Less.compile( null, LESS, options );
+        OutputAnalysis analysis = options.getOutputAnalysis();
+
+        assertEquals( css.length(), analysis.getTotalBytes() );
+
+        List<OutputAnalysis.Entry> rules = analysis.getRules();
+        assertEquals( 3, rules.size() );
+        assertEquals( 4, rules.get( 0 ).getCount() );
+        assertEquals( ".c", rules.get( 2 ).getName() );
+        assertEquals( "null:4", rules.get( 2 ).getLocation() );
+        assertEquals( "  width: 1px;\n".length(), rules.get( 2 ).getBytes() );
+
+        List<OutputAnalysis.Entry> mixins = analysis.getMixins();
+        assertEquals( 2, mixins.size() );
+        assertEquals( ".big", mixins.get( 0 ).getName() );
+        assertEquals( 3, mixins.get( 0 ).getCount() );
+
+        List<OutputAnalysis.Entry> files = analysis.getFiles();
+        assertEquals( 1, files.size() );
+        assertEquals( 9, files.get( 0 ).getCount() );
+
+        List<OutputAnalysis.Entry> duplicates = analysis.getDuplicates();
+        assertEquals( 1, duplicates.size() );
+        assertEquals( 2, duplicates.get( 0 ).getCount() );
+        assertEquals( ".a", duplicates.get( 0 ).getLocation() );
+        assertEquals( css.indexOf( ".b" ), duplicates.get( 0 ).getBytes() );
+    }
+
+    @Test
+    public void parallel() {
+        LessOptions options = new LessOptions();
+        options.setOutputAnalysis( new OutputAnalysis() );
+        options.setParallel( true );
+        String css = Less.compile( null, LESS, options );
+        OutputAnalysis analysis = options.getOutputAnalysis();
+        assertEquals( css.length(), analysis.getTotalBytes() );
+        assertEquals( 3, analysis.getRules().size() );
+        assertEquals( 1, analysis.getDuplicates().size() );
+        assertEquals( css.indexOf( ".b" ), analysis.getDuplicates().get( 0 ).getBytes() );
+    }
+
+    @Test
+    public void accumulated() {
+        LessOptions options = new LessOptions();
+        options.setOutputAnalysis( new OutputAnalysis() );
+        String css = Less.compile( null, LESS, options );
+        Less.compile( null, LESS, options );
+        // the blocks of both compilations are counted together
+        List<OutputAnalysis.Entry> duplicates = options.getOutputAnalysis().getDuplicates();
+        assertEquals( 2, duplicates.size() );
+        assertEquals( ".a", duplicates.get( 0 ).getLocation() );
+        assertEquals( 4, duplicates.get( 0 ).getCount() );
+        assertEquals( 3 * css.indexOf( ".b" ), duplicates.get( 0 ).getBytes() );
+    }
+}
@@ -0,0 +1,111 @@
+package com.inet.lib.less;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResourceCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static class CountingListener implements CompileListener {
+        private int loaded;
+
+        @Override
+        public void compileStarted( URL baseURL ) {
+        }
+
+        @Override
+        public void compileFinished( URL baseURL, long duration, Throwable error ) {
+        }
+
+        @Override
+        public void importLoaded( URL url, long chars, long duration ) {
+        }
+
+        @Override
+        public synchronized void resourceLoaded( URL url, long bytes, long duration ) {
+            loaded++;
+        }
+
+        @Override
+        public void mixinExpanded( String name, String fileName, int line, long duration ) {
+        }
+    }
+
+    private File write( String name, byte[] content ) throws Exception {
+        File file = new File( folder.getRoot(), name );
+        Files.write( file.toPath(), content );
+        return file;
+    }
+
+    @Test
+    public void shared() throws Exception {
+        File image = write( "icon.png", new byte[] { 1, 2, 3 } );
+        URL baseURL = write( "main.less", new byte[0] ).toURI().toURL();
+        String less = ".a { b: data-uri('icon.png'); c: data-uri('icon.png'); }";
+
+        CountingListener listener = new CountingListener();
+        LessOptions options = new LessOptions();
+        options.setListener( listener );
+        options.setResourceCache( new ResourceCache() );
+        String css = Less.compile( baseURL, less, options );
+        assertEquals( ".a {\n  b: url(\"data:image/png;base64,AQID\");\n  c: url(\"data:image/png;base64,AQID\");\n}\n", css );
+        assertEquals( css, Less.compile( baseURL, less, options ) );
+        assertEquals( 1, listener.loaded );
+
+        Files.write( image.toPath(), new byte[] { 4, 5, 6 } );
+        image.setLastModified( image.lastModified() + 10000 );
+        css = Less.compile( baseURL, less, options );
+        assertEquals( ".a {\n  b: url(\"data:image/png;base64,BAUG\");\n  c: url(\"data:image/png;base64,BAUG\");\n}\n", css );
+        assertEquals( 2, listener.loaded );
+    }
+
+    @Test
+    public void maxSize() throws Exception {
+        write( "page.html", "<b>abc</b>".getBytes( StandardCharsets.UTF_8 ) );
+        URL baseURL = write( "main.less", new byte[0] ).toURI().toURL();
+        String less = ".a { b: data-uri('page.html'); }";
+
+        LessOptions options = new LessOptions();
+        options.setResourceCache( new ResourceCache() );
+        options.setDataUriMaxSize( 10 );
+        assertEquals( ".a {\n  b: url('page.html');\n}\n", Less.compile( baseURL, less, options ) );
+        options.setDataUriMaxSize( 11 );
+        assertEquals( ".a {\n  b: url(\"data:text/html,%3Cb%3Eabc%3C%2Fb%3E\");\n}\n", Less.compile( baseURL, less, options ) );
+    }
+
+    @Test
+    public void mimeType() {
+        assertEquals( "image/jpeg;base64", ResourceCache.mimeType( "/a.JPG", new byte[0] ) );
+        assertEquals( "image/svg+xml", ResourceCache.mimeType( "/a.svg", new byte[0] ) );
+        assertEquals( "font/woff2;base64", ResourceCache.mimeType( "/font.woff2", new byte[0] ) );
+        assertEquals( "image/png;base64", ResourceCache.mimeType( "/image", new byte[] { (byte)0x89, 'P', 'N', 'G', 13 } ) );
+        assertEquals( "image/gif;base64", ResourceCache.mimeType( "/image.bin", "GIF89a".getBytes( StandardCharsets.US_ASCII ) ) );
+        assertEquals( "text/html", ResourceCache.mimeType( "/page.txt", new byte[] { 'a' } ) );
+    }
+
+    @Test
+    public void base64() {
+        // test vectors of RFC 4648 with both padding cases
+        assertEquals( "", ResourceCache.encodeBase64( new byte[0] ) );
+        assertEquals( "Zg==", ResourceCache.encodeBase64( "f".getBytes( StandardCharsets.US_ASCII ) ) );
+        assertEquals( "Zm8=", ResourceCache.encodeBase64( "fo".getBytes( StandardCharsets.US_ASCII ) ) );
+        assertEquals( "Zm9v", ResourceCache.encodeBase64( "foo".getBytes( StandardCharsets.US_ASCII ) ) );
+        assertEquals( "Zm9vYg==", ResourceCache.encodeBase64( "foob".getBytes( StandardCharsets.US_ASCII ) ) );
+        assertEquals( "Zm9vYmE=", ResourceCache.encodeBase64( "fooba".getBytes( StandardCharsets.US_ASCII ) ) );
+        assertEquals( "Zm9vYmFy", ResourceCache.encodeBase64( "foobar".getBytes( StandardCharsets.US_ASCII ) ) );
+        // negative bytes and the last two characters of the alphabet
+        assertEquals( "//79", ResourceCache.encodeBase64( new byte[] { (byte)0xFF, (byte)0xFE, (byte)0xFD } ) );
+        assertEquals( "+/8=", ResourceCache.encodeBase64( new byte[] { (byte)0xFB, (byte)0xFF } ) );
+        assertEquals( "gA==", ResourceCache.encodeBase64( new byte[] { (byte)0x80 } ) );
+    }
+}
@@ -0,0 +1,113 @@
+package com.inet.lib.less;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SourceMapTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Decode the mappings to a list of "generatedLine:generatedColumn -> source:line" entries.
+     */
+    private static List<String> decode( SourceMap map ) {
+        String base64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        List<String> result = new ArrayList<>();
+        int line = 0;
+        int[] values = new int[4];
+        String mappings = map.getMappings();
+        for( String lineMappings : mappings.split( ";", -1 ) ) {
+            values[0] = 0;
+            if( !lineMappings.isEmpty() ) {
+                for( String segment : lineMappings.split( "," ) ) {
+                    int idx = 0;
+                    int pos = 0;
+                    while( pos < segment.length() ) {
+                        int value = 0;
+                        int shift = 0;
+                        int digit;
+                        do {
+                            digit = base64.indexOf( segment.charAt( pos++ ) );
+                            value += (digit & 31) << shift;
+                            shift += 5;
+                        } while( (digit & 32) != 0 );
+                        values[idx++] += (value & 1) != 0 ? -(value >> 1) : value >> 1;
+                    }
+                    result.add( line + ":" + values[0] + " -> " + map.getSources().get( values[1] ) + ':' + values[2] );
+                }
+            }
+            line++;
+        }
+        return result;
+    }
+
+    @Test
+    public void mappings() {
+        LessOptions options = new LessOptions();
+        options.setSourceMap( new SourceMap() );
+        String css = Less.compile( null, ".m() { margin: 0; }\n.a {\n  color: red;\n  .m();\n  .b { width: 1px; }\n}\n", options );
+        assertEquals( ".a {\n  color: red;\n  margin: 0;\n}\n.a .b {\n  width: 1px;\n}\n", css );
+        List<String> expected = Arrays.asList( "0:0 -> input:1", "1:2 -> input:2", "2:2 -> input:0", "4:0 -> input:4", "5:2 -> input:4" );
+        assertEquals( expected, decode( options.getSourceMap() ) );
+
+        options.getSourceMap().setFile( "out.css" );
+        String json = options.getSourceMap().toString();
+        assertEquals( "{\"version\":3,\"file\":\"out.css\",\"sources\":[\"input\"],\"names\":[],\"mappings\":\"" + options.getSourceMap().getMappings() + "\"}", json );
+    }
+
+    @Test
+    public void compressed() {
+        LessOptions options = new LessOptions();
+        options.setCompress( true );
+        options.setSourceMap( new SourceMap() );
+        String css = Less.compile( null, ".a {\n  color: red;\n  width: 1px;\n}\n", options );
+        assertEquals( ".a{color:#f00;width:1px}", css );
+        List<String> expected = Arrays.asList( "0:0 -> input:0", "0:3 -> input:1", "0:14 -> input:2" );
+        assertEquals( expected, decode( options.getSourceMap() ) );
+    }
+
+    @Test
+    public void parallelEqualsSequential() throws Exception {
+        File lessFile = new File( getClass().getResource( "samples/bootstrap/bootstrap-3.3.1.less" ).toURI() );
+        String lessData = new String( Files.readAllBytes( lessFile.toPath() ), StandardCharsets.UTF_8 );
+
+        LessOptions options = new LessOptions();
+        options.setSourceMap( new SourceMap() );
+        String css = Less.compile( lessFile.toURI().toURL(), lessData, options );
+        SourceMap sequential = options.getSourceMap();
+
+        options.setSourceMap( new SourceMap() );
+        options.setParallel( true );
+        assertEquals( css, Less.compile( lessFile.toURI().toURL(), lessData, options ) );
+        assertEquals( decode( sequential ), decode( options.getSourceMap() ) );
+        assertTrue( sequential.getSources().contains( "bootstrap-3.3.1/mixins/grid.less" ) );
+    }
+
+    @Test
+    public void equalFileNamesInDifferentFolders() throws Exception {
+        File root = folder.getRoot();
+        new File( root, "a" ).mkdir();
+        new File( root, "b" ).mkdir();
+        Files.write( new File( root, "a/_variables.less" ).toPath(), ".a { color: red; }".getBytes( StandardCharsets.UTF_8 ) );
+        Files.write( new File( root, "b/_variables.less" ).toPath(), ".b { color: blue; }".getBytes( StandardCharsets.UTF_8 ) );
+        Files.write( new File( root, "a/main.less" ).toPath(), "@import '_variables.less';".getBytes( StandardCharsets.UTF_8 ) );
+        Files.write( new File( root, "b/main.less" ).toPath(), "@import '_variables.less';".getBytes( StandardCharsets.UTF_8 ) );
+
+        LessOptions options = new LessOptions();
+        options.setSourceMap( new SourceMap() );
+        Less.compile( new File( root, "main.less" ).toURI().toURL(), "@import 'a/main.less';\n@import 'b/main.less';\n", options );
+        assertEquals( Arrays.asList( "a/_variables.less", "b/_variables.less" ), options.getSourceMap().getSources() );
+    }
+}
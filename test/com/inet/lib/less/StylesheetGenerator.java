@@ -0,0 +1,180 @@
+package com.inet.lib.less;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Generate synthetic less workloads for scaling tests and benchmarks. Every feature can be scaled independently.
+ */
+public class StylesheetGenerator {
+
+    private int rules         = 1000;
+
+    private int nesting       = 2;
+
+    private int mixins        = 20;
+
+    private int loopDepth     = 10;
+
+    private int extendRules   = 50;
+
+    private int variableChain = 20;
+
+    private int imports       = 0;
+
+    /**
+     * Set the count of top level rules. Default is 1000.
+     */
+    public void setRules( int rules ) {
+        this.rules = rules;
+    }
+
+    /**
+     * Set the depth of nested rules inside every top level rule. Default is 2.
+     */
+    public void setNesting( int nesting ) {
+        this.nesting = nesting;
+    }
+
+    /**
+     * Set the count of mixin definitions. Every mixin has two guarded variants. Default is 20.
+     */
+    public void setMixins( int mixins ) {
+        this.mixins = mixins;
+    }
+
+    /**
+     * Set the recursion depth of a guarded loop mixin that produce one rule per step. Default is 10.
+     */
+    public void setLoopDepth( int loopDepth ) {
+        this.loopDepth = loopDepth;
+    }
+
+    /**
+     * Set the count of rules that extend another rule with :extend(all). Default is 50.
+     */
+    public void setExtendRules( int extendRules ) {
+        this.extendRules = extendRules;
+    }
+
+    /**
+     * Set the length of a chain of variables where every variable depends on the previous. Default is 20.
+     */
+    public void setVariableChain( int variableChain ) {
+        this.variableChain = variableChain;
+    }
+
+    /**
+     * Set the count of imported files that the rules are distributed to. This is only used by
+     * {@link #writeTo(File)}. Default is 0.
+     */
+    public void setImports( int imports ) {
+        this.imports = imports;
+    }
+
+    /**
+     * Generate a single stylesheet without imports.
+     * 
+     * @return the less data
+     */
+    public String generate() {
+        StringBuilder builder = new StringBuilder();
+        appendDefinitions( builder );
+        for( int i = 0; i < rules; i++ ) {
+            appendRule( builder, i );
+        }
+        appendExtends( builder );
+        return builder.toString();
+    }
+
+    /**
+     * Write the stylesheet and the imported files into the directory.
+     * 
+     * @param dir
+     *            the target directory
+     * @return the URL of the main file
+     * @throws IOException
+     *             if any I/O error occur
+     */
+    public URL writeTo( File dir ) throws IOException {
+        if( imports <= 0 ) {
+            return write( new File( dir, "main.less" ), generate() );
+        }
+        StringBuilder main = new StringBuilder();
+        appendDefinitions( main );
+        for( int f = 0; f < imports; f++ ) {
+            StringBuilder part = new StringBuilder();
+            for( int i = rules * f / imports; i < rules * (f + 1) / imports; i++ ) {
+                appendRule( part, i );
+            }
+            String name = "part" + f + ".less";
+            write( new File( dir, name ), part.toString() );
+            main.append( "@import \"" ).append( name ).append( "\";\n" );
+        }
+        appendExtends( main );
+        return write( new File( dir, "main.less" ), main.toString() );
+    }
+
+    private static URL write( File file, String content ) throws IOException {
+        Files.write( file.toPath(), content.getBytes( StandardCharsets.UTF_8 ) );
+        return file.toURI().toURL();
+    }
+
+    /**
+     * Variables, mixins and the loop that are used by the rules.
+     */
+    private void appendDefinitions( StringBuilder builder ) {
+        builder.append( "@color: #336699;\n" );
+        builder.append( "@var0: 1px;\n" );
+        for( int i = 1; i < variableChain; i++ ) {
+            builder.append( "@var" ).append( i ).append( ": (@var" ).append( i - 1 ).append( " + 1px);\n" );
+        }
+        for( int i = 0; i < mixins; i++ ) {
+            builder.append( ".mixin" ).append( i ).append( "(@a) when (@a > 5) { width: (@a * " ).append( i + 1 ).append( "px); }\n" );
+            builder.append( ".mixin" ).append( i ).append( "(@a) when (@a =< 5) { height: (@a * " ).append( i + 1 ).append( "px); }\n" );
+        }
+        if( loopDepth > 0 ) {
+            builder.append( ".loop(@i) when (@i > 0) {\n" );
+            builder.append( "  @sel: ~\".loop-@{i}\";\n" );
+            builder.append( "  @{sel} { width: (@i * 10px); }\n" );
+            builder.append( "  .loop((@i - 1));\n" );
+            builder.append( "}\n" );
+            builder.append( ".loop(" ).append( loopDepth ).append( ");\n" );
+        }
+    }
+
+    private void appendRule( StringBuilder builder, int i ) {
+        builder.append( ".rule" ).append( i ).append( " {\n" );
+        builder.append( "  color: darken(@color, " ).append( i % 20 ).append( "%);\n" );
+        if( variableChain > 0 ) {
+            builder.append( "  margin: @var" ).append( variableChain - 1 - i % variableChain ).append( ";\n" );
+        }
+        if( mixins > 0 ) {
+            builder.append( "  .mixin" ).append( i % mixins ).append( "(" ).append( i % 10 ).append( ");\n" );
+        }
+        StringBuilder indent = new StringBuilder( "  " );
+        for( int n = 1; n <= nesting; n++ ) {
+            builder.append( indent ).append( ".nested" ).append( n ).append( " {\n" );
+            indent.append( "  " );
+            builder.append( indent ).append( "padding: " ).append( n ).append( "px;\n" );
+            builder.append( indent ).append( "&:hover { color: lighten(@color, " ).append( n ).append( "%); }\n" );
+        }
+        for( int n = 1; n <= nesting; n++ ) {
+            indent.setLength( indent.length() - 2 );
+            builder.append( indent ).append( "}\n" );
+        }
+        builder.append( "}\n" );
+    }
+
+    private void appendExtends( StringBuilder builder ) {
+        for( int i = 0; i < extendRules && rules > 0; i++ ) {
+            builder.append( ".extend" ).append( i ).append( " {\n" );
+            builder.append( "  &:extend(.rule" ).append( i % rules ).append( " all);\n" );
+            builder.append( "  border: 1px solid;\n" );
+            builder.append( "}\n" );
+        }
+    }
+}
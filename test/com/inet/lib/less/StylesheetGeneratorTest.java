@@ -0,0 +1,57 @@
+package com.inet.lib.less;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+public class StylesheetGeneratorTest {
+
+    @Test
+    public void importsAndParallel() throws Exception {
+        StylesheetGenerator generator = new StylesheetGenerator();
+        generator.setRules( 200 );
+        generator.setNesting( 3 );
+        generator.setImports( 7 );
+        String expected = Less.compile( null, generator.generate(), false );
+
+        File dir = Files.createTempDirectory( "jlessc" ).toFile();
+        try {
+            URL url = generator.writeTo( dir );
+            String lessData = new String( Files.readAllBytes( new File( url.toURI() ).toPath() ), "UTF-8" );
+            assertEquals( expected, Less.compile( url, lessData, false ) );
+
+            LessOptions options = new LessOptions();
+            options.setParallel( true );
+            assertEquals( expected, Less.compile( null, generator.generate(), options ) );
+        } finally {
+            for( File file : dir.listFiles() ) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void parallelParsing() throws Exception {
+        StylesheetGenerator generator = new StylesheetGenerator();
+        generator.setRules( 3000 );
+        generator.setNesting( 3 );
+        String lessData = generator.generate();
+        assertTrue( lessData.length() > 2 * LessParser.PARALLEL_CHUNK_SIZE );
+
+        LessOptions options = new LessOptions();
+        options.setSourceMap( new SourceMap() );
+        String expected = Less.compile( null, lessData, options );
+        String mappings = options.getSourceMap().getMappings();
+
+        options.setSourceMap( new SourceMap() );
+        options.setParallel( true );
+        assertEquals( expected, Less.compile( null, lessData, options ) );
+        assertEquals( mappings, options.getSourceMap().getMappings() );
+    }
+}